@@ -0,0 +1,126 @@
+package com.aichat.model;
+
+import com.aichat.service.BenchmarkData;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson round trips of the chat DTOs, using the same mapper settings as
+ * the application
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+
+    @Param({"1", "50", "500"})
+    private int historySize;
+
+    private ObjectWriter requestWriter;
+    private ObjectReader requestReader;
+    private ObjectWriter responseWriter;
+    private ObjectReader responseReader;
+    private ObjectWriter historyWriter;
+    private ObjectReader historyReader;
+
+    private ChatRequest request;
+    private ChatResponse response;
+    private List<ChatMessage> history;
+    private byte[] requestJson;
+    private byte[] responseJson;
+    private byte[] historyJson;
+
+    @Setup
+    public void setup() throws Exception {
+        // Mirrors spring.jackson.* in application.yml
+        ObjectMapper mapper = new Jackson2ObjectMapperBuilder()
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS,
+                        DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+
+        Random random = new Random(42);
+        request = new ChatRequest(BenchmarkData.text(random, 256), "bench-session", "bench-user",
+                Map.of("filesystem", Map.of("operation", "read", "path", "/tmp/notes.txt")),
+                true, new String[]{"filesystem", "web_search"});
+
+        response = new ChatResponse(request.getMessage(), BenchmarkData.text(random, 1024));
+        response.setId("42");
+        response.setSessionId("bench-session");
+        response.setMcpToolsUsed(List.of("filesystem", "web_search"));
+        response.setToolResults(List.of(
+                ToolExecutionResult.success("filesystem", Map.of("content", BenchmarkData.text(random, 512)), 3),
+                ToolExecutionResult.success("web_search", Map.of("query", "notes", "results", List.of()), 12)));
+
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 12, 0);
+        history = new ArrayList<>(historySize);
+        for (int i = 0; i < historySize; i++) {
+            ChatMessage message = new ChatMessage();
+            message.setId((long) i + 1);
+            message.setSessionId("bench-session");
+            message.setUserId("bench-user");
+            message.setType(i % 2 == 0 ? ChatMessage.MessageType.USER : ChatMessage.MessageType.AI);
+            message.setContent(BenchmarkData.text(random, 200));
+            message.setTimestamp(start.plusSeconds(i));
+            history.add(message);
+        }
+
+        requestWriter = mapper.writerFor(ChatRequest.class);
+        requestReader = mapper.readerFor(ChatRequest.class);
+        responseWriter = mapper.writerFor(ChatResponse.class);
+        responseReader = mapper.readerFor(ChatResponse.class);
+        TypeReference<List<ChatMessage>> historyType = new TypeReference<>() {};
+        historyWriter = mapper.writerFor(historyType);
+        historyReader = mapper.readerFor(historyType);
+
+        requestJson = requestWriter.writeValueAsBytes(request);
+        responseJson = responseWriter.writeValueAsBytes(response);
+        historyJson = historyWriter.writeValueAsBytes(history);
+    }
+
+    @Benchmark
+    public byte[] serializeRequest() throws Exception {
+        return requestWriter.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public ChatRequest deserializeRequest() throws Exception {
+        return requestReader.readValue(requestJson);
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() throws Exception {
+        return responseWriter.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public ChatResponse deserializeResponse() throws Exception {
+        return responseReader.readValue(responseJson);
+    }
+
+    @Benchmark
+    public byte[] serializeHistory() throws Exception {
+        return historyWriter.writeValueAsBytes(history);
+    }
+
+    @Benchmark
+    public List<ChatMessage> deserializeHistory() throws Exception {
+        return historyReader.readValue(historyJson);
+    }
+}
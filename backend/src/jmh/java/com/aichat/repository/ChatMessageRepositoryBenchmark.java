@@ -0,0 +1,119 @@
+package com.aichat.repository;
+
+import com.aichat.AiChatApplication;
+import com.aichat.model.ChatMessage;
+import com.aichat.service.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Save and query paths of ChatMessageRepository against the embedded H2
+ * database, with the application's JPA settings
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class ChatMessageRepositoryBenchmark {
+
+    private static final int SESSIONS = 100;
+    private static final int BATCH_SIZE = 50;
+
+    @Param({"20", "200"})
+    private int messagesPerSession;
+
+    private ConfigurableApplicationContext context;
+    private ChatMessageRepository repository;
+    private Random random;
+    private Pageable page;
+    private int nextSession;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(AiChatApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "logging.level.root=WARN",
+                        "spring.datasource.url=jdbc:h2:mem:benchmark",
+                        "mcp.server.health-interval=1h")
+                .run();
+        repository = context.getBean(ChatMessageRepository.class);
+        random = new Random(42);
+        page = PageRequest.of(0, 20);
+
+        List<ChatMessage> seed = new ArrayList<>(SESSIONS * messagesPerSession);
+        for (int session = 0; session < SESSIONS; session++) {
+            for (int i = 0; i < messagesPerSession; i++) {
+                seed.add(message(sessionId(session)));
+            }
+        }
+        repository.saveAll(seed);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ChatMessage save() {
+        return repository.save(message("bench-writes"));
+    }
+
+    @Benchmark
+    public List<ChatMessage> saveBatch() {
+        List<ChatMessage> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(message("bench-writes"));
+        }
+        return repository.saveAll(batch);
+    }
+
+    @Benchmark
+    public List<ChatMessage> findSessionHistory() {
+        return repository.findBySessionIdOrderByTimestampAsc(nextSessionId());
+    }
+
+    @Benchmark
+    public List<ChatMessage> findLatestPage() {
+        return repository.findLatestPage(nextSessionId(), page);
+    }
+
+    @Benchmark
+    public List<ChatMessage> findRecent() {
+        return repository.findRecentBySessionId(nextSessionId(), page);
+    }
+
+    @Benchmark
+    public long countBySession() {
+        return repository.countBySessionId(nextSessionId());
+    }
+
+    private String nextSessionId() {
+        nextSession = (nextSession + 1) % SESSIONS;
+        return sessionId(nextSession);
+    }
+
+    private static String sessionId(int session) {
+        return "bench-session-" + session;
+    }
+
+    private ChatMessage message(String sessionId) {
+        ChatMessage message = new ChatMessage();
+        message.setSessionId(sessionId);
+        message.setUserId("bench-user");
+        message.setType(ChatMessage.MessageType.USER);
+        message.setContent(BenchmarkData.text(random, 200));
+        return message;
+    }
+}
@@ -0,0 +1,31 @@
+package com.aichat.service;
+
+import java.util.Random;
+
+/**
+ * Deterministic test data for benchmarks
+ */
+public final class BenchmarkData {
+
+    private static final String[] WORDS = {
+        "hello", "help", "code", "file", "search", "the", "a", "database", "query",
+        "weather", "please", "could", "you", "show", "me", "latest", "results", "with"
+    };
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Space-separated words of roughly the given length, reproducible for a given seed
+     */
+    public static String text(Random random, int length) {
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            if (text.length() > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.substring(0, length);
+    }
+}
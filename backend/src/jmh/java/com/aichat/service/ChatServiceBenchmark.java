@@ -0,0 +1,59 @@
+package com.aichat.service;
+
+import com.aichat.config.ChatProperties;
+import com.aichat.model.ChatRequest;
+import com.aichat.model.ToolExecutionResult;
+import org.openjdk.jmh.annotations.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response generation across message sizes and tool counts
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class ChatServiceBenchmark {
+
+    private static final String[] TOOLS = {"filesystem", "web_search", "code_execution", "database"};
+
+    @Param({"16", "1024", "16384"})
+    private int messageSize;
+
+    @Param({"0", "1", "4"})
+    private int toolCount;
+
+    private ChatService chatService;
+    private ChatRequest request;
+    private List<ToolExecutionResult> toolResults;
+
+    @Setup
+    public void setup() {
+        // generateAiResponse only reads the request, the tool results, the context and the response rules
+        chatService = new ChatService(null, null, null, null, null, null, new ResponseRuleEngine(new ChatProperties()), null, null);
+
+        request = new ChatRequest();
+        request.setSessionId("bench-session");
+        request.setMessage(BenchmarkData.text(new Random(42), messageSize));
+        request.setUseMcp(toolCount > 0);
+
+        String[] tools = new String[toolCount];
+        toolResults = new ArrayList<>(toolCount);
+        for (int i = 0; i < toolCount; i++) {
+            tools[i] = TOOLS[i % TOOLS.length];
+            toolResults.add(ToolExecutionResult.success(tools[i], Map.of("result", "value " + i), 5));
+        }
+        request.setMcpTools(tools);
+    }
+
+    @Benchmark
+    public String generateAiResponse() {
+        return chatService.generateAiResponse(request, toolResults, ConversationContext.EMPTY);
+    }
+}
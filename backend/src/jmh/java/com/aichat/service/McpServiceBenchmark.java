@@ -0,0 +1,124 @@
+package com.aichat.service;
+
+import com.aichat.config.McpProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tool dispatch through McpService.executeTool in local mode, with and
+ * without the read-only result cache
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class McpServiceBenchmark {
+
+    @Param({"false", "true"})
+    private boolean cacheEnabled;
+
+    private Scheduler scheduler;
+    private McpClient client;
+    private SandboxExecutor sandbox;
+    private DatabaseQueryExecutor database;
+    private McpService mcpService;
+    private Path directory;
+    private Map<String, Object> searchParameters;
+    private Map<String, Object> readParameters;
+    private Map<String, Object> listParameters;
+    private Map<String, Object> databaseParameters;
+    private Map<String, Object> codeParameters;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("mcp-bench");
+        Random random = new Random(42);
+        for (int i = 0; i < 50; i++) {
+            Files.writeString(directory.resolve("file-" + i + ".txt"), BenchmarkData.text(random, 4096));
+        }
+
+        McpProperties properties = new McpProperties();
+        properties.getCache().setEnabled(cacheEnabled);
+        properties.getTools().getFilesystem().setCacheTtl(Duration.ofMinutes(10));
+        properties.getTools().getWebSearch().setCacheTtl(Duration.ofMinutes(10));
+        properties.getTools().getDatabase().setCacheTtl(Duration.ofMinutes(10));
+        McpProperties.Language python = new McpProperties.Language();
+        python.setCommand(List.of("python3", "-I", "-S", "-u"));
+        python.setScript("classpath:sandbox/python_worker.py");
+        python.setWorkers(2);
+        properties.getTools().getCodeExecution().getLanguages().put("python", python);
+        McpProperties.DataSourceSettings bench = new McpProperties.DataSourceSettings();
+        bench.setUrl("jdbc:h2:mem:mcp_bench;DB_CLOSE_DELAY=-1");
+        bench.setUsername("sa");
+        bench.setPassword("");
+        properties.getTools().getDatabase().getDatasources().put("bench", bench);
+
+        scheduler = Schedulers.newBoundedElastic(8, 10_000, "bench-blocking");
+        ToolResultCache cache = new ToolResultCache(properties);
+        // The client is only used in remote mode, so its health probe is never started
+        client = new McpClient(properties);
+        sandbox = new SandboxExecutor(properties, scheduler);
+        sandbox.start();
+        database = new DatabaseQueryExecutor(properties, scheduler);
+        database.start();
+        mcpService = new McpService(scheduler, client, properties, cache,
+                new McpMetrics(new SimpleMeterRegistry(), cache, client), new McpToolRegistry(client, properties), sandbox, database);
+
+        searchParameters = Map.of("query", "latest results");
+        readParameters = Map.of("operation", "read", "path", directory.resolve("file-7.txt").toString());
+        listParameters = Map.of("operation", "list", "path", directory.toString());
+        databaseParameters = Map.of("operation", "query", "database", "bench", "query", "SELECT 1");
+        codeParameters = Map.of("language", "python", "code", "print(1)");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        sandbox.stop();
+        database.stop();
+        scheduler.dispose();
+        client.stop();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public Object webSearch() {
+        return mcpService.executeTool("web_search", searchParameters).block();
+    }
+
+    @Benchmark
+    public Object filesystemRead() {
+        return mcpService.executeTool("filesystem", readParameters).block();
+    }
+
+    @Benchmark
+    public Object filesystemList() {
+        return mcpService.executeTool("filesystem", listParameters).block();
+    }
+
+    @Benchmark
+    public Object databaseQuery() {
+        return mcpService.executeTool("database", databaseParameters).block();
+    }
+
+    @Benchmark
+    public Object codeExecution() {
+        return mcpService.executeTool("code_execution", codeParameters).block();
+    }
+}
@@ -0,0 +1,73 @@
+package com.aichat.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Latency samples of one operation, recorded by a single worker thread
+ */
+class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int count;
+    private long errors;
+
+    void record(long nanos, boolean success) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+        if (!success) {
+            errors++;
+        }
+    }
+
+    /**
+     * Merge the samples of several workers into sorted order
+     */
+    static Summary summarize(Iterable<LatencyRecorder> recorders, double seconds) {
+        int total = 0;
+        long errors = 0;
+        for (LatencyRecorder recorder : recorders) {
+            total += recorder.count;
+            errors += recorder.errors;
+        }
+        long[] merged = new long[total];
+        int offset = 0;
+        for (LatencyRecorder recorder : recorders) {
+            System.arraycopy(recorder.samples, 0, merged, offset, recorder.count);
+            offset += recorder.count;
+        }
+        Arrays.sort(merged);
+        return new Summary(total, errors, total / seconds,
+                percentile(merged, 0.50), percentile(merged, 0.99), percentile(merged, 0.999),
+                total == 0 ? 0 : merged[total - 1]);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * Latencies are in nanoseconds
+     */
+    record Summary(long requests, long errors, double requestsPerSecond, long p50, long p99, long p999, long max) {
+
+        double errorRate() {
+            return requests == 0 ? 0 : (double) errors / requests;
+        }
+
+        long percentile(String name) {
+            return switch (name) {
+                case "p50" -> p50;
+                case "p99" -> p99;
+                case "p999" -> p999;
+                case "max" -> max;
+                default -> throw new IllegalArgumentException("Unknown percentile: " + name);
+            };
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.aichat.loadtest;
+
+import com.aichat.AiChatApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import java.io.File;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load test. Boots the application against an in-JVM MCP
+ * stand-in, drives a mixed workload of chat, history and MCP execute
+ * requests from many concurrent sessions, reports latency percentiles and
+ * throughput, and exits non-zero when a latency or error budget is exceeded.
+ */
+public class LoadTestRunner {
+
+    private static final List<String> OPERATIONS = List.of("chat", "history", "mcp");
+    private static final String ALL = "all";
+
+    private final LoadTestSettings settings;
+    private final HttpClient httpClient;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final String[] operationByWeight;
+    private String baseUrl;
+
+    LoadTestRunner(LoadTestSettings settings) {
+        this.settings = settings;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        List<String> weighted = new ArrayList<>();
+        settings.mix().forEach((operation, weight) -> {
+            if (!OPERATIONS.contains(operation)) {
+                throw new IllegalArgumentException("Unknown operation in mix: " + operation);
+            }
+            for (int i = 0; i < weight; i++) {
+                weighted.add(operation);
+            }
+        });
+        if (weighted.isEmpty()) {
+            throw new IllegalArgumentException("Workload mix is empty");
+        }
+        this.operationByWeight = weighted.toArray(String[]::new);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+
+        McpStandIn standIn = new McpStandIn(settings.mcpLatency(), settings.mcpJitter(),
+                settings.mcpErrorRate(), settings.mcpErrorStatus());
+        String mcpUrl = standIn.start();
+
+        // Command line arguments take precedence over application.yml
+        List<String> arguments = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--logging.level.root=WARN",
+                "--logging.level.com.aichat=WARN",
+                "--logging.level.org.springframework.web=WARN",
+                "--spring.autoconfigure.exclude="
+                        + "org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration,"
+                        + "org.springframework.boot.actuate.autoconfigure.security.servlet.ManagementWebSecurityAutoConfiguration",
+                "--mcp.server.mode=remote",
+                "--mcp.server.url=" + mcpUrl,
+                "--mcp.server.health-interval=1s",
+                // Measure the service itself, not the per-user rate limits
+                "--admission.enabled=false"));
+        arguments.addAll(Arrays.asList(args));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(AiChatApplication.class)
+                .run(arguments.toArray(String[]::new));
+
+        int exitCode;
+        try {
+            LoadTestRunner runner = new LoadTestRunner(settings);
+            runner.baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+            exitCode = runner.run();
+        } finally {
+            context.close();
+            standIn.stop();
+        }
+        System.exit(exitCode);
+    }
+
+    int run() throws Exception {
+        System.out.printf("Load test: %d workers, %d sessions, mix %s, warmup %s, duration %s%n",
+                settings.concurrency(), settings.sessions(), settings.mix(), settings.warmup(), settings.duration());
+        System.out.printf("MCP stand-in: latency %s + up to %s, error rate %.3f (HTTP %d)%n",
+                settings.mcpLatency(), settings.mcpJitter(), settings.mcpErrorRate(), settings.mcpErrorStatus());
+
+        long measureStart = System.nanoTime() + settings.warmup().toNanos();
+        long end = measureStart + settings.duration().toNanos();
+
+        List<Map<String, LatencyRecorder>> workers = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(settings.concurrency());
+        for (int i = 0; i < settings.concurrency(); i++) {
+            Map<String, LatencyRecorder> recorders = new HashMap<>();
+            OPERATIONS.forEach(operation -> recorders.put(operation, new LatencyRecorder()));
+            workers.add(recorders);
+            Random random = new Random(settings.seed() + i);
+            executor.execute(() -> work(random, recorders, measureStart, end));
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(settings.warmup().plus(settings.duration()).toSeconds() + 60, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+            throw new IllegalStateException("Workers did not finish in time");
+        }
+
+        double seconds = settings.duration().toNanos() / 1e9;
+        Map<String, LatencyRecorder.Summary> summaries = new LinkedHashMap<>();
+        for (String operation : OPERATIONS) {
+            summaries.put(operation, LatencyRecorder.summarize(
+                    workers.stream().map(recorders -> recorders.get(operation)).toList(), seconds));
+        }
+        summaries.put(ALL, LatencyRecorder.summarize(
+                workers.stream().flatMap(recorders -> recorders.values().stream()).toList(), seconds));
+
+        List<String> violations = checkBudgets(summaries);
+        print(summaries, violations);
+        writeReport(summaries, violations);
+        return violations.isEmpty() ? 0 : 1;
+    }
+
+    private void work(Random random, Map<String, LatencyRecorder> recorders, long measureStart, long end) {
+        long sequence = 0;
+        while (true) {
+            long start = System.nanoTime();
+            if (start >= end) {
+                return;
+            }
+            String operation = operationByWeight[random.nextInt(operationByWeight.length)];
+            String sessionId = "load-session-" + random.nextInt(settings.sessions());
+            HttpRequest request = request(operation, sessionId, random, sequence++);
+
+            boolean success;
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                success = response.statusCode() / 100 == 2;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                success = false;
+            }
+            if (start >= measureStart) {
+                recorders.get(operation).record(System.nanoTime() - start, success);
+            }
+        }
+    }
+
+    private HttpRequest request(String operation, String sessionId, Random random, long sequence) {
+        return switch (operation) {
+            case "chat" -> {
+                Map<String, Object> body = new LinkedHashMap<>();
+                body.put("message", "Load test message " + sequence + ", can you help with some code?");
+                body.put("sessionId", sessionId);
+                body.put("userId", "load-user-" + random.nextInt(100));
+                if (random.nextBoolean()) {
+                    body.put("useMcp", true);
+                    body.put("mcpTools", List.of("web_search"));
+                }
+                yield post("/api/chat", body);
+            }
+            case "history" -> HttpRequest.newBuilder(uri("/api/chat/history?sessionId=" + encode(sessionId)))
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+            case "mcp" -> random.nextBoolean()
+                    ? post("/api/mcp/execute?toolName=database",
+                            Map.of("operation", "query", "database", "load", "query", "SELECT " + random.nextInt(1000)))
+                    : post("/api/mcp/execute?toolName=web_search", Map.of("query", "load test " + random.nextInt(1000)));
+            default -> throw new IllegalArgumentException("Unknown operation: " + operation);
+        };
+    }
+
+    private HttpRequest post(String path, Object body) {
+        try {
+            return HttpRequest.newBuilder(uri(path))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body)))
+                    .build();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private List<String> checkBudgets(Map<String, LatencyRecorder.Summary> summaries) {
+        List<String> violations = new ArrayList<>();
+        settings.budgets().forEach((key, budget) -> {
+            int dot = key.lastIndexOf('.');
+            LatencyRecorder.Summary summary = dot > 0 ? summaries.get(key.substring(0, dot)) : null;
+            if (summary == null) {
+                throw new IllegalArgumentException("Budget must be <operation>.<percentile>: " + key);
+            }
+            long actual = summary.percentile(key.substring(dot + 1));
+            if (actual > budget.toNanos()) {
+                violations.add(String.format("%s %.2fms exceeds budget %s", key, actual / 1e6, budget));
+            }
+        });
+        LatencyRecorder.Summary all = summaries.get(ALL);
+        if (all.requests() == 0) {
+            violations.add("No requests completed during the measurement window");
+        } else if (all.errorRate() > settings.maxErrorRate()) {
+            violations.add(String.format("error rate %.4f exceeds budget %.4f", all.errorRate(), settings.maxErrorRate()));
+        }
+        return violations;
+    }
+
+    private static void print(Map<String, LatencyRecorder.Summary> summaries, List<String> violations) {
+        System.out.printf("%n%-8s %10s %8s %10s %10s %10s %10s %10s%n",
+                "op", "requests", "errors", "rps", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        summaries.forEach((operation, summary) -> System.out.printf("%-8s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                operation, summary.requests(), summary.errors(), summary.requestsPerSecond(),
+                summary.p50() / 1e6, summary.p99() / 1e6, summary.p999() / 1e6, summary.max() / 1e6));
+        if (violations.isEmpty()) {
+            System.out.println("\nAll budgets met");
+        } else {
+            System.out.println("\nBudget violations:");
+            violations.forEach(violation -> System.out.println("  " + violation));
+        }
+    }
+
+    private void writeReport(Map<String, LatencyRecorder.Summary> summaries, List<String> violations) throws Exception {
+        Map<String, Object> operations = new LinkedHashMap<>();
+        summaries.forEach((operation, summary) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("requests", summary.requests());
+            entry.put("errors", summary.errors());
+            entry.put("requestsPerSecond", summary.requestsPerSecond());
+            entry.put("p50Ms", summary.p50() / 1e6);
+            entry.put("p99Ms", summary.p99() / 1e6);
+            entry.put("p999Ms", summary.p999() / 1e6);
+            entry.put("maxMs", summary.max() / 1e6);
+            operations.put(operation, entry);
+        });
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("settings", settings);
+        report.put("operations", operations);
+        report.put("violations", violations);
+
+        File file = new File(settings.report());
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        mapper.copy().findAndRegisterModules()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+                .writeValue(file, report);
+        System.out.println("Report written to " + file.getAbsolutePath());
+    }
+}
@@ -0,0 +1,80 @@
+package com.aichat.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Load test settings, read from {@code loadtest.*} system properties
+ */
+public record LoadTestSettings(
+        Duration warmup,
+        Duration duration,
+        int concurrency,
+        int sessions,
+        Map<String, Integer> mix,
+        Duration mcpLatency,
+        Duration mcpJitter,
+        double mcpErrorRate,
+        int mcpErrorStatus,
+        Map<String, Duration> budgets,
+        double maxErrorRate,
+        long seed,
+        String report) {
+
+    public static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                duration("loadtest.warmup", "10s"),
+                duration("loadtest.duration", "30s"),
+                Integer.parseInt(property("loadtest.concurrency", "64")),
+                Integer.parseInt(property("loadtest.sessions", "1000")),
+                weights(property("loadtest.mix", "chat=50,history=30,mcp=20")),
+                duration("loadtest.mcp.latency", "20ms"),
+                duration("loadtest.mcp.jitter", "10ms"),
+                Double.parseDouble(property("loadtest.mcp.error-rate", "0.01")),
+                Integer.parseInt(property("loadtest.mcp.error-status", "500")),
+                budgets(property("loadtest.budgets", "chat.p99=500ms,history.p99=250ms,mcp.p99=250ms")),
+                Double.parseDouble(property("loadtest.max-error-rate", "0.02")),
+                Long.parseLong(property("loadtest.seed", "42")),
+                property("loadtest.report", "target/loadtest-report.json"));
+    }
+
+    private static String property(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    private static Duration duration(String name, String defaultValue) {
+        return DurationStyle.detectAndParse(property(name, defaultValue));
+    }
+
+    /** "chat=50,history=30" */
+    private static Map<String, Integer> weights(String value) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        pairs(value).forEach((key, weight) -> weights.put(key, Integer.parseInt(weight)));
+        return weights;
+    }
+
+    /** "chat.p99=500ms,mcp.p999=1s" */
+    private static Map<String, Duration> budgets(String value) {
+        Map<String, Duration> budgets = new LinkedHashMap<>();
+        pairs(value).forEach((key, budget) -> budgets.put(key, DurationStyle.detectAndParse(budget)));
+        return budgets;
+    }
+
+    private static Map<String, String> pairs(String value) {
+        Map<String, String> pairs = new LinkedHashMap<>();
+        for (String pair : value.split(",")) {
+            if (pair.isBlank()) {
+                continue;
+            }
+            String[] parts = pair.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected key=value but got: " + pair);
+            }
+            pairs.put(parts[0].trim(), parts[1].trim());
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,98 @@
+package com.aichat.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-JVM replacement for mcp-server/server.js. Speaks the same /health,
+ * /tools and /execute protocol and injects latency and errors into /execute.
+ */
+public class McpStandIn {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Duration latency;
+    private final Duration jitter;
+    private final double errorRate;
+    private final int errorStatus;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private HttpServer server;
+
+    public McpStandIn(Duration latency, Duration jitter, double errorRate, int errorStatus) {
+        this.latency = latency;
+        this.jitter = jitter;
+        this.errorRate = errorRate;
+        this.errorStatus = errorStatus;
+    }
+
+    /**
+     * Start on an ephemeral loopback port and return the base URL
+     */
+    public String start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.setExecutor(executor);
+        server.createContext("/health", exchange -> send(exchange, 200, Map.of("status", "healthy", "service", "mcp-stand-in")));
+        server.createContext("/tools", exchange -> send(exchange, 200, List.of(
+                Map.of("name", "filesystem", "description", "Access and manipulate files on the local filesystem"),
+                Map.of("name", "web_search", "description", "Search the web for current information"),
+                Map.of("name", "code_execution", "description", "Execute code in various programming languages"),
+                Map.of("name", "database", "description", "Query and manipulate databases"))));
+        server.createContext("/execute", this::execute);
+        server.start();
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        executor.shutdownNow();
+    }
+
+    private void execute(HttpExchange exchange) throws IOException {
+        Map<?, ?> request;
+        try (InputStream body = exchange.getRequestBody()) {
+            request = MAPPER.readValue(body, Map.class);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delayNanos = latency.toNanos() + (jitter.isZero() ? 0 : random.nextLong(jitter.toNanos() + 1));
+        try {
+            TimeUnit.NANOSECONDS.sleep(delayNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.close();
+            return;
+        }
+
+        if (random.nextDouble() < errorRate) {
+            send(exchange, errorStatus, Map.of("error", "Injected failure"));
+            return;
+        }
+        send(exchange, 200, Map.of("success", true, "result", Map.of(
+                "tool", String.valueOf(request.get("toolName")),
+                "parameters", request.get("parameters") != null ? request.get("parameters") : Map.of())));
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = MAPPER.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -2,12 +2,14 @@ package com.aichat;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.scheduling.annotation.EnableAsync;
 
 /**
  * Main Spring Boot application class for AI Chat with MCP support
  */
 @SpringBootApplication
+@ConfigurationPropertiesScan
 @EnableAsync
 public class AiChatApplication {
 
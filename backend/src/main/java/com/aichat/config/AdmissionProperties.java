@@ -0,0 +1,42 @@
+package com.aichat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rate limits and concurrency limits applied before chat and tool requests do any work
+ */
+@Data
+@ConfigurationProperties(prefix = "admission")
+public class AdmissionProperties {
+
+    private boolean enabled = true;
+    /** Callers tracked per limiter; idle ones are dropped, and new callers wait while all are busy */
+    private int maxKeys = 100_000;
+    /** Retry-After sent when a request is shed for lack of concurrency */
+    private Duration shedRetryAfter = Duration.ofSeconds(1);
+    /** Limits per endpoint: chat and mcp-execute */
+    private Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+    /** Per-user rate limit of each MCP tool, by tool name */
+    private Map<String, Limit> tools = new LinkedHashMap<>();
+
+    @Data
+    public static class Endpoint {
+        /** Requests in flight across all callers; 0 disables the limit */
+        private int maxConcurrent;
+        private Limit perUser;
+        private Limit perSession;
+    }
+
+    /**
+     * Token bucket: a sustained rate with bursts of up to {@code burst} requests
+     */
+    @Data
+    public static class Limit {
+        private double rate;
+        private int burst = 1;
+    }
+}
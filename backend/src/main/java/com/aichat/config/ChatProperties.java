@@ -0,0 +1,163 @@
+package com.aichat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import java.time.Duration;
+
+/**
+ * Configuration properties for chat processing and persistence
+ */
+@Data
+@ConfigurationProperties(prefix = "chat")
+public class ChatProperties {
+
+    private Persistence persistence = new Persistence();
+    private HistoryCache historyCache = new HistoryCache();
+    private Execution execution = new Execution();
+    private WebSocket websocket = new WebSocket();
+    private ResponseRules responseRules = new ResponseRules();
+    private Search search = new Search();
+    private Archive archive = new Archive();
+    private Context context = new Context();
+    private Expiry expiry = new Expiry();
+
+    @Data
+    public static class Persistence {
+        private WriteBehind writeBehind = new WriteBehind();
+    }
+
+    /**
+     * Queued, batched persistence of chat messages
+     */
+    @Data
+    public static class WriteBehind {
+        private boolean enabled = false;
+        private int batchSize = 50;
+        private Duration flushInterval = Duration.ofMillis(200);
+        private int queueCapacity = 10000;
+        private Duration offerTimeout = Duration.ofSeconds(1);
+        private boolean awaitFlush = false;
+        /** Attempts to flush a batch before its messages are saved one by one */
+        private int maxFlushAttempts = 3;
+        /** Wait before a flush retry, multiplied by the attempts so far */
+        private Duration flushRetryBackoff = Duration.ofMillis(500);
+    }
+
+    /**
+     * In-memory cache of recent messages per session
+     */
+    @Data
+    public static class HistoryCache {
+        private boolean enabled = true;
+        private int maxSessions = 1000;
+        private int messagesPerSession = 200;
+    }
+
+    /**
+     * Where blocking repository and tool work runs
+     */
+    @Data
+    public static class Execution {
+        private Mode mode = Mode.VIRTUAL;
+        private int threadCap = 10 * Runtime.getRuntime().availableProcessors();
+        private int queuedTaskCap = 100000;
+
+        public enum Mode {
+            /** One virtual thread per task; falls back to BOUNDED_ELASTIC before Java 21 */
+            VIRTUAL,
+            BOUNDED_ELASTIC
+        }
+    }
+
+    /**
+     * Multiplexed chat channel at /ws/chat
+     */
+    @Data
+    public static class WebSocket {
+        private boolean enabled = true;
+        /** Frames a session may receive before the client grants more credits */
+        private int initialCredits = 64;
+        /** Pushed messages buffered per session while it has no credits */
+        private int maxBufferedFrames = 256;
+        /** Stream events requested ahead from a reply per session */
+        private int streamPrefetch = 16;
+        private int maxSessionsPerConnection = 100;
+        private int historyLimit = 50;
+        /** Connections that cannot take a frame within this time are closed */
+        private Duration sendTimeLimit = Duration.ofSeconds(10);
+        private DataSize sendBufferSizeLimit = DataSize.ofKilobytes(512);
+        /** Largest frame accepted from a client */
+        private DataSize maxTextMessageSize = DataSize.ofKilobytes(128);
+    }
+
+    /**
+     * Keyword rules for contextual replies
+     */
+    @Data
+    public static class ResponseRules {
+        /** Resource location of the JSON rule set; file: locations are reloaded on change */
+        private String location = "classpath:response-rules.json";
+        private Duration reloadInterval = Duration.ofSeconds(5);
+    }
+
+    /**
+     * In-memory full-text index over message content
+     */
+    @Data
+    public static class Search {
+        private boolean enabled = true;
+        /** Index the messages already in the database at startup */
+        private boolean rebuildOnStartup = true;
+        private int maxPageSize = 100;
+        /** Deleted messages tolerated in postings before they are purged */
+        private int purgeThreshold = 10000;
+    }
+
+    /**
+     * Cold tier: idle sessions are moved into compressed segment files
+     */
+    @Data
+    public static class Archive {
+        private boolean enabled = false;
+        private String directory = "data/archive";
+        /** Sessions without new messages for this long are archived */
+        private Duration idleAfter = Duration.ofHours(24);
+        private Duration sweepInterval = Duration.ofMinutes(5);
+        private int maxSessionsPerSweep = 100;
+        /** Messages per compressed block; the index holds one entry per block */
+        private int blockMessages = 128;
+        /** Segments roll over at this size; must stay below 2GB */
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+    }
+
+    /**
+     * Per-session context window handed to reply generation
+     */
+    @Data
+    public static class Context {
+        private boolean enabled = true;
+        /** Token budget of the whole context, summary included */
+        private int maxTokens = 2048;
+        /** Recent turns kept verbatim */
+        private int maxTurns = 20;
+        /** Share of the budget reserved for the summary of older turns */
+        private int summaryTokens = 256;
+        private int summaryTerms = 12;
+        private int maxSessions = 1000;
+    }
+
+    /**
+     * Background deletion of sessions with no messages for longer than the TTL
+     */
+    @Data
+    public static class Expiry {
+        private boolean enabled = true;
+        private Duration ttl = Duration.ofDays(7);
+        private Duration sweepInterval = Duration.ofMinutes(10);
+        /** Sessions deleted per statement */
+        private int batchSize = 100;
+        /** Upper bound on the work of one sweep; the rest waits for the next */
+        private int maxBatchesPerSweep = 10;
+    }
+}
@@ -0,0 +1,50 @@
+package com.aichat.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Execution configuration for blocking repository and tool work
+ */
+@Configuration
+@Slf4j
+public class ExecutionConfig {
+    
+    /**
+     * Scheduler that blocking JPA and I/O calls are offloaded to, so they
+     * never run on a servlet or Reactor event-loop thread
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler blockingScheduler(ChatProperties chatProperties) {
+        ChatProperties.Execution execution = chatProperties.getExecution();
+        
+        if (execution.getMode() == ChatProperties.Execution.Mode.VIRTUAL) {
+            ExecutorService virtualThreads = newVirtualThreadPerTaskExecutor();
+            if (virtualThreads != null) {
+                log.info("Blocking work runs on virtual threads");
+                return Schedulers.fromExecutorService(virtualThreads, "chat-virtual");
+            }
+            log.warn("Virtual threads require Java 21+, falling back to a bounded elastic scheduler");
+        }
+        
+        log.info("Blocking work runs on a bounded elastic scheduler (thread cap {}, queue cap {})",
+                execution.getThreadCap(), execution.getQueuedTaskCap());
+        return Schedulers.newBoundedElastic(execution.getThreadCap(), execution.getQueuedTaskCap(), "chat-blocking");
+    }
+    
+    /**
+     * Looked up reflectively so the application still builds and runs on Java 17
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.aichat.config;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configuration properties for the MCP server connection and tools
+ */
+@Data
+@ConfigurationProperties(prefix = "mcp")
+public class McpProperties {
+
+    private Server server = new Server();
+    private Tools tools = new Tools();
+    private Cache cache = new Cache();
+    private Batch batch = new Batch();
+    private Registry registry = new Registry();
+
+    /**
+     * Settings for a tool, looked up by its MCP tool name
+     */
+    public ToolSettings getTool(String toolName) {
+        return switch (toolName) {
+            case "filesystem" -> tools.getFilesystem();
+            case "web_search" -> tools.getWebSearch();
+            case "code_execution" -> tools.getCodeExecution();
+            case "database" -> tools.getDatabase();
+            default -> null;
+        };
+    }
+
+    @Data
+    public static class Server {
+        private String url = "http://localhost:3001";
+        private Duration timeout = Duration.ofSeconds(30);
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        /** Execute tools in-process or against the remote MCP server */
+        private ExecutionMode mode = ExecutionMode.LOCAL;
+        private Duration healthInterval = Duration.ofSeconds(10);
+        private Pool pool = new Pool();
+        private Retry retry = new Retry();
+        private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+        public enum ExecutionMode {
+            LOCAL, REMOTE
+        }
+    }
+
+    @Data
+    public static class Pool {
+        private int maxConnections = 50;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+    }
+
+    /**
+     * Retries with jittered backoff, applied to idempotent operations only
+     */
+    @Data
+    public static class Retry {
+        private int maxRetries = 2;
+        private Duration minBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(1);
+        private double jitter = 0.5;
+    }
+
+    @Data
+    public static class CircuitBreaker {
+        private int failureThreshold = 5;
+        private Duration openDuration = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Result cache for read-only tool calls
+     */
+    @Data
+    public static class Cache {
+        private boolean enabled = true;
+        private int maxEntries = 10000;
+    }
+
+    /**
+     * Limits for batch tool execution
+     */
+    @Data
+    public static class Batch {
+        private int maxInvocations = 100;
+        private int maxParallelism = 8;
+    }
+
+    /**
+     * Where tool definitions come from. Built-in definitions apply in local
+     * mode; in remote mode they are replaced by the server's /tools list.
+     */
+    @Data
+    public static class Registry {
+        private String location = "classpath:mcp-tools.json";
+        /** How often the remote tool list is fetched again */
+        private Duration refreshInterval = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Tools {
+        private FilesystemSettings filesystem = new FilesystemSettings();
+        private ToolSettings webSearch = new ToolSettings();
+        private CodeExecutionSettings codeExecution = new CodeExecutionSettings();
+        private DatabaseSettings database = new DatabaseSettings();
+    }
+
+    @Data
+    public static class ToolSettings {
+        private boolean enabled = true;
+        /** Per-call deadline; the server timeout applies when unset */
+        private Duration timeout;
+        /** How long read-only results are cached; unset disables caching for the tool */
+        private Duration cacheTtl;
+    }
+
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class FilesystemSettings extends ToolSettings {
+        /** Directory the streaming content endpoint is confined to */
+        private String rootPath;
+        /** Hard cap on the bytes returned by a single read */
+        private DataSize maxReadBytes = DataSize.ofMegabytes(1);
+        /** Hard cap on the entries returned by a single list */
+        private int maxListEntries = 1000;
+    }
+
+    /**
+     * Code runs in pools of pre-started worker processes, one pool per
+     * language. The tool timeout is the wall-clock limit of a run.
+     */
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class CodeExecutionSettings extends ToolSettings {
+        /** Runs that may wait for a worker per language; more are rejected */
+        private int maxQueued = 32;
+        /** How long a run waits for a worker before it is rejected */
+        private Duration queueTimeout = Duration.ofSeconds(5);
+        /** Runs a worker serves before it is replaced by a fresh process */
+        private int maxUsesPerWorker = 100;
+        /** CPU time limit of a single run */
+        private Duration cpuTime = Duration.ofSeconds(5);
+        /** Address space limit of a worker, for languages that apply it */
+        private DataSize memory = DataSize.ofMegabytes(256);
+        /** Hard cap on the characters of stdout and of stderr returned by a run */
+        private DataSize maxOutput = DataSize.ofKilobytes(64);
+        private Map<String, Language> languages = new LinkedHashMap<>();
+    }
+
+    @Data
+    public static class Language {
+        /** Interpreter command; the worker script path is appended */
+        private List<String> command = new ArrayList<>();
+        /** Worker script, read once and run by every worker of the language */
+        private String script;
+        /** Workers kept started and waiting */
+        private int workers = 1;
+        /**
+         * Replace the worker after every run, for interpreters whose script
+         * cannot give each run a fresh process of its own
+         */
+        private boolean singleUse;
+    }
+
+    /**
+     * Read-only SQL against configured JDBC datasources. The tool timeout
+     * is the query timeout.
+     */
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class DatabaseSettings extends ToolSettings {
+        /** Hard cap on the rows returned by a query */
+        private int maxRows = 1000;
+        /** Hard cap on the approximate JSON size of the rows returned by a query */
+        private DataSize maxBytes = DataSize.ofMegabytes(1);
+        /** Rows fetched from the driver and emitted per chunk */
+        private int chunkRows = 100;
+        /** Prepared statements kept open per connection */
+        private int statementCacheSize = 64;
+        /** Parsed queries kept per datasource */
+        private int queryCacheSize = 256;
+        private Map<String, DataSourceSettings> datasources = new LinkedHashMap<>();
+    }
+
+    @Data
+    public static class DataSourceSettings {
+        private String url;
+        /** Credentials queries run with; give them read access only */
+        private String username;
+        private String password;
+        private int poolSize = 4;
+        /** How long a query waits for a free connection */
+        private Duration acquireTimeout = Duration.ofSeconds(5);
+        /** Script run once at startup, e.g. to create an embedded database */
+        private String initScript;
+        /** Credentials for the init script; the query credentials when unset */
+        private String initUsername;
+        private String initPassword;
+    }
+}
@@ -0,0 +1,38 @@
+package com.aichat.config;
+
+import com.aichat.controller.ChatWebSocketHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+/**
+ * Registers the multiplexed chat WebSocket at /ws/chat
+ */
+@Configuration
+@EnableWebSocket
+@ConditionalOnProperty(prefix = "chat.websocket", name = "enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final ChatWebSocketHandler chatWebSocketHandler;
+    private final ChatProperties chatProperties;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(chatWebSocketHandler, "/ws/chat")
+                .setAllowedOriginPatterns("*");
+    }
+
+    @Bean
+    public ServletServerContainerFactoryBean webSocketContainer() {
+        int maxMessageSize = (int) chatProperties.getWebsocket().getMaxTextMessageSize().toBytes();
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(maxMessageSize);
+        return container;
+    }
+}
@@ -1,15 +1,28 @@
 package com.aichat.controller;
 
+import com.aichat.model.ChatHistoryPage;
 import com.aichat.model.ChatMessage;
 import com.aichat.model.ChatRequest;
 import com.aichat.model.ChatResponse;
+import com.aichat.model.ChatSearchPage;
+import com.aichat.model.ChatStreamEvent;
+import com.aichat.service.AdmissionControl;
+import com.aichat.service.ChatExporter;
 import com.aichat.service.ChatService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -20,21 +33,29 @@ import java.util.Map;
 @RequestMapping("/api/chat")
 @RequiredArgsConstructor
 @Slf4j
-@CrossOrigin(origins = "*")
 public class ChatController {
     
     private final ChatService chatService;
+    private final AdmissionControl admissionControl;
+    private final ChatExporter chatExporter;
     
     /**
      * Send a chat message and get AI response
      */
     @PostMapping
-    public Mono<ResponseEntity<ChatResponse>> sendMessage(@Valid @RequestBody ChatRequest request) {
-        log.info("Received chat request: {}", request.getMessage());
+    public Mono<ResponseEntity<ChatResponse>> sendMessage(@Valid @RequestBody ChatRequest request,
+                                                          HttpServletRequest httpRequest) {
+        log.debug("Received chat request: {}", request.getMessage());
+        Duration wait = checkRate(request, httpRequest);
+        if (!wait.isZero()) {
+            return Mono.just(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, AdmissionControl.retryAfterSeconds(wait))
+                    .body(new ChatResponse("Rate limit exceeded, retry later")));
+        }
         
         return chatService.processMessage(request)
                 .map(response -> {
-                    log.info("Generated AI response for session: {}", response.getSessionId());
+                    log.debug("Generated AI response for session: {}", response.getSessionId());
                     return ResponseEntity.ok(response);
                 })
                 .onErrorResume(error -> {
@@ -44,6 +65,26 @@ public class ChatController {
                 });
     }
     
+    /**
+     * Send a chat message and stream the AI response as server-sent events
+     */
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<ChatStreamEvent>>> streamMessage(@Valid @RequestBody ChatRequest request,
+                                                                                HttpServletRequest httpRequest) {
+        log.debug("Received streaming chat request: {}", request.getMessage());
+        Duration wait = checkRate(request, httpRequest);
+        if (!wait.isZero()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, AdmissionControl.retryAfterSeconds(wait))
+                    .build();
+        }
+        
+        return ResponseEntity.ok(chatService.streamMessage(request)
+                .map(event -> ServerSentEvent.builder(event)
+                        .event(event.getType().name().toLowerCase())
+                        .build()));
+    }
+    
     /**
      * Get chat history for a session
      */
@@ -54,6 +95,24 @@ public class ChatController {
         return ResponseEntity.ok(history);
     }
     
+    /**
+     * Get one page of chat history for a session, using opaque cursors
+     */
+    @GetMapping("/history/page")
+    public ResponseEntity<ChatHistoryPage> getChatHistoryPage(
+            @RequestParam String sessionId,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int size) {
+        log.info("Retrieving chat history page for session: {} (before: {}, after: {}, size: {})", sessionId, before, after, size);
+        try {
+            return ResponseEntity.ok(chatService.getHistoryPage(sessionId, before, after, size));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid history page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     /**
      * Get recent messages for a session
      */
@@ -66,6 +125,38 @@ public class ChatController {
         return ResponseEntity.ok(recent);
     }
     
+    /**
+     * Full-text search over message content, ranked by relevance
+     */
+    @GetMapping("/search")
+    public ResponseEntity<ChatSearchPage> search(
+            @RequestParam String q,
+            @RequestParam(required = false) String sessionId,
+            @RequestParam(required = false) String userId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        log.debug("Searching chat messages for: {} (session: {}, user: {}, page: {}, size: {})", q, sessionId, userId, page, size);
+        try {
+            return ResponseEntity.ok(chatService.search(q, sessionId, userId, page, size));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid search request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * Export all messages of a user as newline-delimited JSON, oldest first
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUserMessages(@RequestParam String userId) {
+        log.info("Exporting messages of user: {}", userId);
+        StreamingResponseBody body = out -> chatExporter.exportUserMessages(userId, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"chat-export.ndjson\"")
+                .body(body);
+    }
+    
     /**
      * Clear chat history for a session
      */
@@ -76,6 +167,14 @@ public class ChatController {
         return ResponseEntity.ok().build();
     }
     
+    /**
+     * Get history cache statistics
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getHistoryCacheStats() {
+        return ResponseEntity.ok(chatService.getHistoryCacheStats());
+    }
+    
     /**
      * Health check endpoint
      */
@@ -83,4 +182,15 @@ public class ChatController {
     public ResponseEntity<Map<String, String>> health() {
         return ResponseEntity.ok(Map.of("status", "healthy", "service", "chat"));
     }
+    
+    /**
+     * A request without a user or session is limited per client address
+     */
+    private Duration checkRate(ChatRequest request, HttpServletRequest httpRequest) {
+        String userId = request.getUserId();
+        String sessionId = request.getSessionId();
+        String caller = userId != null || sessionId != null ? userId : httpRequest.getRemoteAddr();
+        String[] tools = request.isUseMcp() ? request.getMcpTools() : null;
+        return admissionControl.checkRate(AdmissionControl.CHAT, caller, sessionId, tools);
+    }
 }
@@ -0,0 +1,462 @@
+package com.aichat.controller;
+
+import com.aichat.config.ChatProperties;
+import com.aichat.model.ChatMessage;
+import com.aichat.model.ChatRequest;
+import com.aichat.model.ChatSocketFrame;
+import com.aichat.model.ChatSocketFrame.FrameType;
+import com.aichat.model.ChatStreamEvent;
+import com.aichat.service.AdmissionControl;
+import com.aichat.service.ChatMessageSavedEvent;
+import com.aichat.service.ChatService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Subscription;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Scheduler;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chat over a single WebSocket connection per client. A connection carries
+ * any number of chat sessions; each has its own credit window, so a slow or
+ * idle session never holds up the others. Chat turns stream their replies
+ * as EVENT frames, and messages saved to a subscribed session are pushed as
+ * MESSAGE frames.
+ */
+@Component
+@Slf4j
+public class ChatWebSocketHandler extends TextWebSocketHandler {
+
+    private final ChatService chatService;
+    private final AdmissionControl admissionControl;
+    private final ObjectMapper objectMapper;
+    private final Scheduler blockingScheduler;
+    private final ChatProperties.WebSocket settings;
+
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+    /** Channels subscribed to each chat session, across all connections */
+    private final Map<String, Set<Channel>> subscribers = new ConcurrentHashMap<>();
+
+    public ChatWebSocketHandler(ChatService chatService, AdmissionControl admissionControl, ObjectMapper objectMapper,
+                                Scheduler blockingScheduler, ChatProperties chatProperties) {
+        this.chatService = chatService;
+        this.admissionControl = admissionControl;
+        this.objectMapper = objectMapper;
+        this.blockingScheduler = blockingScheduler;
+        this.settings = chatProperties.getWebsocket();
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        WebSocketSession concurrent = new ConcurrentWebSocketSessionDecorator(session,
+                (int) settings.getSendTimeLimit().toMillis(),
+                (int) settings.getSendBufferSizeLimit().toBytes(),
+                ConcurrentWebSocketSessionDecorator.OverflowStrategy.TERMINATE);
+        connections.put(session.getId(), new Connection(concurrent));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        Connection connection = connections.get(session.getId());
+        if (connection == null) {
+            return;
+        }
+
+        ChatSocketFrame frame;
+        try {
+            frame = objectMapper.readValue(message.getPayload(), ChatSocketFrame.class);
+        } catch (JsonProcessingException e) {
+            connection.send(ChatSocketFrame.error(null, null, "Malformed frame: " + e.getOriginalMessage()));
+            return;
+        }
+        if (frame.getType() == null || frame.getSessionId() == null || frame.getSessionId().isBlank()) {
+            connection.send(ChatSocketFrame.error(frame.getSessionId(), frame.getRequestId(), "Frame type and sessionId are required"));
+            return;
+        }
+
+        switch (frame.getType()) {
+            case SUBSCRIBE -> subscribe(connection, frame);
+            case UNSUBSCRIBE -> unsubscribe(connection, frame.getSessionId());
+            case CREDIT -> credit(connection, frame);
+            case CHAT -> chat(connection, frame);
+            case HISTORY -> {
+                Channel channel = openChannel(connection, frame);
+                if (channel != null) {
+                    sendHistory(channel, frame);
+                }
+            }
+            default -> connection.send(ChatSocketFrame.error(frame.getSessionId(), frame.getRequestId(),
+                    "Unsupported frame type: " + frame.getType()));
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.debug("WebSocket transport error on {}: {}", session.getId(), exception.getMessage());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Connection connection = connections.remove(session.getId());
+        if (connection != null) {
+            connection.channels.values().forEach(this::close);
+            connection.channels.clear();
+        }
+    }
+
+    /**
+     * Push a saved message to every channel subscribed to its session
+     */
+    @EventListener
+    public void onMessageSaved(ChatMessageSavedEvent event) {
+        ChatMessage message = event.message();
+        Set<Channel> channels = subscribers.get(message.getSessionId());
+        if (channels == null || channels.isEmpty()) {
+            return;
+        }
+
+        ChatSocketFrame frame = ChatSocketFrame.of(FrameType.MESSAGE, message.getSessionId());
+        frame.setMessage(message);
+        // Serialized once for all subscribers
+        TextMessage payload = serialize(frame);
+        if (payload != null) {
+            channels.forEach(channel -> channel.push(payload));
+        }
+    }
+
+    private void subscribe(Connection connection, ChatSocketFrame frame) {
+        Channel channel = openChannel(connection, frame);
+        if (channel != null) {
+            sendHistory(channel, frame);
+        }
+    }
+
+    private void unsubscribe(Connection connection, String sessionId) {
+        Channel channel = connection.channels.remove(sessionId);
+        if (channel != null) {
+            close(channel);
+        }
+    }
+
+    private void credit(Connection connection, ChatSocketFrame frame) {
+        Channel channel = connection.channels.get(frame.getSessionId());
+        if (channel == null) {
+            connection.send(ChatSocketFrame.error(frame.getSessionId(), frame.getRequestId(), "Session is not subscribed"));
+            return;
+        }
+        if (frame.getCredits() == null || frame.getCredits() <= 0) {
+            connection.send(ChatSocketFrame.error(frame.getSessionId(), frame.getRequestId(), "Credits must be positive"));
+            return;
+        }
+        channel.grant(frame.getCredits());
+    }
+
+    private void chat(Connection connection, ChatSocketFrame frame) {
+        ChatRequest request = frame.getRequest();
+        if (request == null || request.getMessage() == null || request.getMessage().isBlank()) {
+            connection.send(ChatSocketFrame.error(frame.getSessionId(), frame.getRequestId(), "Message content is required"));
+            return;
+        }
+        Channel channel = openChannel(connection, frame);
+        if (channel == null) {
+            return;
+        }
+
+        request.setSessionId(frame.getSessionId());
+        // Session IDs are chosen per frame, so a frame without a user is limited per client address
+        String caller = request.getUserId() != null ? request.getUserId() : connection.remoteAddress();
+        Duration wait = admissionControl.checkRate(AdmissionControl.CHAT, caller, request.getSessionId(),
+                request.isUseMcp() ? request.getMcpTools() : null);
+        if (!wait.isZero()) {
+            connection.send(ChatSocketFrame.error(frame.getSessionId(), frame.getRequestId(),
+                    "Rate limit exceeded, retry after " + AdmissionControl.retryAfterSeconds(wait) + "s"));
+            return;
+        }
+        ReplySubscriber reply = new ReplySubscriber(channel, frame.getRequestId());
+        channel.replies.add(reply);
+        chatService.streamMessage(request).subscribe(reply);
+    }
+
+    private void sendHistory(Channel channel, ChatSocketFrame frame) {
+        int limit = frame.getLimit() != null && frame.getLimit() > 0
+                ? Math.min(frame.getLimit(), settings.getHistoryLimit())
+                : settings.getHistoryLimit();
+        Mono.fromCallable(() -> chatService.getRecentMessages(channel.sessionId, limit))
+                .subscribeOn(blockingScheduler)
+                .subscribe(recent -> {
+                    List<ChatMessage> ascending = new ArrayList<>(recent);
+                    Collections.reverse(ascending);
+                    ChatSocketFrame history = ChatSocketFrame.of(FrameType.HISTORY, channel.sessionId);
+                    history.setRequestId(frame.getRequestId());
+                    history.setMessages(ascending);
+                    TextMessage payload = serialize(history);
+                    if (payload != null) {
+                        channel.resync(payload);
+                    }
+                }, error -> {
+                    log.error("Error loading history for session: {}", channel.sessionId, error);
+                    channel.connection.send(ChatSocketFrame.error(channel.sessionId, frame.getRequestId(),
+                            "Error loading history: " + error.getMessage()));
+                });
+    }
+
+    /**
+     * The connection's channel for a session, subscribing it to pushed
+     * messages when first opened. Credits in the frame set the initial
+     * window of a new channel and are added to the window of an open one.
+     */
+    private Channel openChannel(Connection connection, ChatSocketFrame frame) {
+        String sessionId = frame.getSessionId();
+        boolean hasCredits = frame.getCredits() != null && frame.getCredits() > 0;
+        Channel channel = connection.channels.get(sessionId);
+        if (channel == null) {
+            if (connection.channels.size() >= settings.getMaxSessionsPerConnection()) {
+                connection.send(ChatSocketFrame.error(sessionId, frame.getRequestId(), "Too many sessions on this connection"));
+                return null;
+            }
+            Channel created = new Channel(connection, sessionId, hasCredits ? frame.getCredits() : settings.getInitialCredits());
+            channel = connection.channels.putIfAbsent(sessionId, created);
+            if (channel == null) {
+                subscribers.computeIfAbsent(sessionId, id -> ConcurrentHashMap.newKeySet()).add(created);
+                return created;
+            }
+        }
+        if (hasCredits) {
+            channel.grant(frame.getCredits());
+        }
+        return channel;
+    }
+
+    private void close(Channel channel) {
+        channel.close();
+        subscribers.computeIfPresent(channel.sessionId, (id, channels) -> {
+            channels.remove(channel);
+            return channels.isEmpty() ? null : channels;
+        });
+    }
+
+    private TextMessage serialize(ChatSocketFrame frame) {
+        try {
+            return new TextMessage(objectMapper.writeValueAsString(frame));
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialize {} frame for session: {}", frame.getType(), frame.getSessionId(), e);
+            return null;
+        }
+    }
+
+    /**
+     * One client connection, with the channels of the sessions it uses
+     */
+    private final class Connection {
+
+        private final WebSocketSession session;
+        private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+
+        Connection(WebSocketSession session) {
+            this.session = session;
+        }
+
+        /** Client address, or the connection ID when the address is unknown */
+        String remoteAddress() {
+            InetSocketAddress address = session.getRemoteAddress();
+            return address != null && address.getAddress() != null ? address.getAddress().getHostAddress() : session.getId();
+        }
+
+        /** Send a control frame outside any credit window */
+        void send(ChatSocketFrame frame) {
+            TextMessage payload = serialize(frame);
+            if (payload != null) {
+                send(payload);
+            }
+        }
+
+        boolean send(TextMessage payload) {
+            if (!session.isOpen()) {
+                return false;
+            }
+            try {
+                session.sendMessage(payload);
+                return true;
+            } catch (Exception e) {
+                // Includes a send buffer or time limit overflow, which closes the connection
+                log.debug("Could not send to WebSocket {}: {}", session.getId(), e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    private record Outbound(TextMessage payload, boolean push, Runnable onSent) {
+    }
+
+    /**
+     * Flow-controlled stream of frames for one session on one connection.
+     * Each frame uses a credit; frames wait while the window is empty.
+     * Pushed messages beyond the buffer limit are dropped and the client is
+     * told to reload history; stream replies are never dropped but only
+     * requested from their source as their frames are sent.
+     */
+    private final class Channel {
+
+        private final Connection connection;
+        private final String sessionId;
+        private final Set<ReplySubscriber> replies = ConcurrentHashMap.newKeySet();
+
+        // Guarded by this
+        private final ArrayDeque<Outbound> pending = new ArrayDeque<>();
+        private long credits;
+        private int bufferedPushes;
+        private boolean overflowed;
+        private boolean closed;
+
+        Channel(Connection connection, String sessionId, int credits) {
+            this.connection = connection;
+            this.sessionId = sessionId;
+            this.credits = credits;
+        }
+
+        void push(TextMessage payload) {
+            List<Runnable> sent;
+            synchronized (this) {
+                if (closed || overflowed) {
+                    return;
+                }
+                if (bufferedPushes >= settings.getMaxBufferedFrames()) {
+                    // The client is told once and reloads history, so buffered pushes are stale
+                    overflowed = true;
+                    pending.removeIf(Outbound::push);
+                    bufferedPushes = 0;
+                    connection.send(ChatSocketFrame.of(FrameType.OVERFLOW, sessionId));
+                    return;
+                }
+                bufferedPushes++;
+                pending.add(new Outbound(payload, true, null));
+                sent = drain();
+            }
+            runAll(sent);
+        }
+
+        void reply(TextMessage payload, Runnable onSent) {
+            List<Runnable> sent;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                pending.add(new Outbound(payload, false, onSent));
+                sent = drain();
+            }
+            runAll(sent);
+        }
+
+        /** Deliver a history snapshot and resume pushes after an overflow */
+        void resync(TextMessage history) {
+            synchronized (this) {
+                overflowed = false;
+            }
+            reply(history, null);
+        }
+
+        void grant(int amount) {
+            List<Runnable> sent;
+            synchronized (this) {
+                credits += amount;
+                sent = drain();
+            }
+            runAll(sent);
+        }
+
+        void close() {
+            synchronized (this) {
+                closed = true;
+                pending.clear();
+            }
+            replies.forEach(ReplySubscriber::dispose);
+        }
+
+        /** Send while credits last; callbacks run after the lock is released */
+        private List<Runnable> drain() {
+            List<Runnable> sent = null;
+            while (credits > 0 && !pending.isEmpty()) {
+                Outbound outbound = pending.poll();
+                if (outbound.push()) {
+                    bufferedPushes--;
+                }
+                credits--;
+                if (!connection.send(outbound.payload())) {
+                    closed = true;
+                    pending.clear();
+                    break;
+                }
+                if (outbound.onSent() != null) {
+                    if (sent == null) {
+                        sent = new ArrayList<>();
+                    }
+                    sent.add(outbound.onSent());
+                }
+            }
+            return sent;
+        }
+
+        private void runAll(List<Runnable> callbacks) {
+            if (callbacks != null) {
+                callbacks.forEach(Runnable::run);
+            }
+        }
+    }
+
+    /**
+     * Forwards the stream events of one chat turn, requesting the next event
+     * only once an earlier one has been sent
+     */
+    private final class ReplySubscriber extends BaseSubscriber<ChatStreamEvent> {
+
+        private final Channel channel;
+        private final String requestId;
+
+        ReplySubscriber(Channel channel, String requestId) {
+            this.channel = channel;
+            this.requestId = requestId;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            request(Math.max(1, settings.getStreamPrefetch()));
+        }
+
+        @Override
+        protected void hookOnNext(ChatStreamEvent event) {
+            ChatSocketFrame frame = ChatSocketFrame.of(FrameType.EVENT, channel.sessionId);
+            frame.setRequestId(requestId);
+            frame.setEvent(event);
+            TextMessage payload = serialize(frame);
+            if (payload != null) {
+                channel.reply(payload, () -> request(1));
+            } else {
+                request(1);
+            }
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            log.error("Error streaming chat reply for session: {}", channel.sessionId, throwable);
+            channel.connection.send(ChatSocketFrame.error(channel.sessionId, requestId, "Error processing message: " + throwable.getMessage()));
+        }
+
+        @Override
+        protected void hookFinally(SignalType type) {
+            channel.replies.remove(this);
+        }
+    }
+}
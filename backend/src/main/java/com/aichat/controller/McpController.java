@@ -1,14 +1,29 @@
 package com.aichat.controller;
 
 import com.aichat.model.McpTool;
+import com.aichat.model.McpToolInvocation;
+import com.aichat.model.QueryResultChunk;
+import com.aichat.model.ToolExecutionResult;
+import com.aichat.service.AdmissionControl;
 import com.aichat.service.ChatService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import jakarta.servlet.http.HttpServletRequest;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * REST controller for MCP operations
@@ -17,10 +32,14 @@ import java.util.Map;
 @RequestMapping("/api/mcp")
 @RequiredArgsConstructor
 @Slf4j
-@CrossOrigin(origins = "*")
 public class McpController {
     
     private final ChatService chatService;
+    private final AdmissionControl admissionControl;
+    
+    /** Tool requests carry no body fields for the caller, so limits key on these headers */
+    private static final String USER_HEADER = "X-User-Id";
+    private static final String SESSION_HEADER = "X-Session-Id";
     
     /**
      * Get all available MCP tools
@@ -38,14 +57,27 @@ public class McpController {
     @PostMapping("/execute")
     public Mono<ResponseEntity<Object>> executeTool(
             @RequestParam String toolName,
-            @RequestBody Map<String, Object> parameters) {
-        log.info("Executing MCP tool: {} with parameters: {}", toolName, parameters);
+            @RequestBody Map<String, Object> parameters,
+            @RequestHeader(value = USER_HEADER, required = false) String userId,
+            @RequestHeader(value = SESSION_HEADER, required = false) String sessionId,
+            HttpServletRequest httpRequest) {
+        log.debug("Executing MCP tool: {} with parameters: {}", toolName, parameters);
+        Duration wait = checkRate(userId, sessionId, httpRequest, toolName);
+        if (!wait.isZero()) {
+            return Mono.just(rateLimited(wait));
+        }
         
         return chatService.executeMcpTool(toolName, parameters)
                 .map(result -> {
-                    log.info("MCP tool execution completed successfully: {}", toolName);
+                    log.debug("MCP tool execution completed successfully: {}", toolName);
                     return ResponseEntity.ok(result);
                 })
+                .onErrorResume(RejectedExecutionException.class, error -> {
+                    log.warn("MCP tool {} rejected: {}", toolName, error.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .header(HttpHeaders.RETRY_AFTER, "1")
+                            .body(Map.of("error", "Tool is at capacity, retry later", "message", error.getMessage(), "tool", toolName)));
+                })
                 .onErrorResume(error -> {
                     log.error("Error executing MCP tool: {}", toolName, error);
                     Map<String, String> errorResponse = Map.of(
@@ -57,19 +89,118 @@ public class McpController {
                 });
     }
     
+    /**
+     * Execute a batch of MCP tools, returning all results in request order
+     */
+    @PostMapping(value = "/execute/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> executeBatch(
+            @RequestBody List<McpToolInvocation> invocations,
+            @RequestParam(required = false) Integer parallelism,
+            @RequestHeader(value = USER_HEADER, required = false) String userId,
+            @RequestHeader(value = SESSION_HEADER, required = false) String sessionId,
+            HttpServletRequest httpRequest) {
+        log.info("Executing MCP batch of {} invocations", invocations.size());
+        String invalid = invalidInvocation(invocations);
+        if (invalid != null) {
+            return Mono.just(ResponseEntity.badRequest().body(Map.of("error", "Invalid batch", "message", invalid)));
+        }
+        Duration wait = checkRate(userId, sessionId, httpRequest, toolNames(invocations));
+        if (!wait.isZero()) {
+            return Mono.just(rateLimited(wait));
+        }
+        
+        return chatService.executeMcpBatch(invocations, parallelism, true)
+                .collectList()
+                .<ResponseEntity<Object>>map(ResponseEntity::ok)
+                .onErrorResume(error -> {
+                    log.error("Error executing MCP batch", error);
+                    Map<String, String> errorResponse = Map.of(
+                        "error", "Batch execution failed",
+                        "message", error.getMessage()
+                    );
+                    return Mono.just(ResponseEntity.badRequest().body(errorResponse));
+                });
+    }
+    
+    /**
+     * Execute a batch of MCP tools, streaming each result as NDJSON when it completes
+     */
+    @PostMapping(value = "/execute/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<ToolExecutionResult>> executeBatchStream(
+            @RequestBody List<McpToolInvocation> invocations,
+            @RequestParam(required = false) Integer parallelism,
+            @RequestHeader(value = USER_HEADER, required = false) String userId,
+            @RequestHeader(value = SESSION_HEADER, required = false) String sessionId,
+            HttpServletRequest httpRequest) {
+        log.info("Streaming MCP batch of {} invocations", invocations.size());
+        String invalid = invalidInvocation(invocations);
+        if (invalid != null) {
+            return ResponseEntity.badRequest().body(Flux.just(ToolExecutionResult.failed(null, invalid, 0)));
+        }
+        Duration wait = checkRate(userId, sessionId, httpRequest, toolNames(invocations));
+        if (!wait.isZero()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, AdmissionControl.retryAfterSeconds(wait))
+                    .build();
+        }
+        return ResponseEntity.ok(chatService.executeMcpBatch(invocations, parallelism, false));
+    }
+    
+    /**
+     * Run a read-only database tool query, streaming its rows as NDJSON chunks
+     */
+    @PostMapping(value = "/database/query", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<QueryResultChunk>> streamDatabaseQuery(
+            @RequestBody Map<String, Object> parameters,
+            @RequestHeader(value = USER_HEADER, required = false) String userId,
+            @RequestHeader(value = SESSION_HEADER, required = false) String sessionId,
+            HttpServletRequest httpRequest) {
+        log.debug("Streaming database query: {}", parameters);
+        Duration wait = checkRate(userId, sessionId, httpRequest, "database");
+        if (!wait.isZero()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, AdmissionControl.retryAfterSeconds(wait))
+                    .build();
+        }
+        return ResponseEntity.ok(chatService.streamDatabaseQuery(parameters));
+    }
+    
     /**
      * Get specific MCP tool information
      */
     @GetMapping("/tools/{toolName}")
     public ResponseEntity<McpTool> getToolInfo(@PathVariable String toolName) {
         log.info("Retrieving information for MCP tool: {}", toolName);
-        List<McpTool> tools = chatService.getAvailableMcpTools();
-        
-        return tools.stream()
-                .filter(tool -> tool.getName().equals(toolName))
-                .findFirst()
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+        McpTool tool = chatService.getMcpTool(toolName);
+        return tool != null ? ResponseEntity.ok(tool) : ResponseEntity.notFound().build();
+    }
+    
+    /**
+     * Stream a file under the filesystem tool root. HTTP Range requests are
+     * supported, so large files can be fetched in parts without buffering.
+     */
+    @GetMapping("/filesystem/content")
+    public ResponseEntity<Resource> streamFile(@RequestParam String path) {
+        log.info("Streaming file: {}", path);
+        try {
+            Path file = chatService.resolveMcpFile(path);
+            MediaType contentType = MediaTypeFactory.getMediaType(file.getFileName().toString())
+                    .orElse(MediaType.APPLICATION_OCTET_STREAM);
+            return ResponseEntity.ok()
+                    .contentType(contentType)
+                    .body(new FileSystemResource(file));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            log.warn("Cannot stream file {}: {}", path, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * Get tool result cache statistics
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(chatService.getMcpCacheStats());
     }
     
     /**
@@ -77,6 +208,46 @@ public class McpController {
      */
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> health() {
-        return ResponseEntity.ok(Map.of("status", "healthy", "service", "mcp"));
+        return ResponseEntity.ok(Map.of(
+            "status", "healthy",
+            "service", "mcp",
+            "mcpServer", chatService.isMcpServerAvailable() ? "available" : "unavailable"
+        ));
+    }
+    
+    /**
+     * Rate limits for a tool call, keyed by the caller's user or session
+     * header, or by client address when neither is sent
+     */
+    private Duration checkRate(String userId, String sessionId, HttpServletRequest httpRequest, String... toolNames) {
+        String caller = userId != null || sessionId != null ? userId : httpRequest.getRemoteAddr();
+        return admissionControl.checkRate(AdmissionControl.MCP_EXECUTE, caller, sessionId, toolNames);
+    }
+    
+    /**
+     * What is wrong with the first invalid invocation of a batch, or null.
+     * Checked here because constraints on list elements are not enforced.
+     */
+    private static String invalidInvocation(List<McpToolInvocation> invocations) {
+        for (int i = 0; i < invocations.size(); i++) {
+            McpToolInvocation invocation = invocations.get(i);
+            if (invocation == null) {
+                return "Invocation " + i + " is missing";
+            }
+            if (invocation.getToolName() == null || invocation.getToolName().isBlank()) {
+                return "Invocation " + i + ": Tool name is required";
+            }
+        }
+        return null;
+    }
+    
+    private static String[] toolNames(List<McpToolInvocation> invocations) {
+        return invocations.stream().map(McpToolInvocation::getToolName).distinct().toArray(String[]::new);
+    }
+    
+    private static ResponseEntity<Object> rateLimited(Duration wait) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, AdmissionControl.retryAfterSeconds(wait))
+                .body(Map.of("error", "Rate limit exceeded, retry later"));
     }
 }
@@ -0,0 +1,32 @@
+package com.aichat.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.util.List;
+
+/**
+ * One page of a session's chat history, oldest message first
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatHistoryPage {
+    
+    private List<ChatMessage> messages;
+    
+    /**
+     * Cursor for the next older page, or null when the start of the session was reached
+     */
+    private String olderCursor;
+    
+    /**
+     * Cursor for messages newer than this page, for polling
+     */
+    private String newerCursor;
+    
+    /**
+     * Whether more messages exist in the requested direction
+     */
+    private boolean hasMore;
+}
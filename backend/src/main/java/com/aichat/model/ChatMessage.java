@@ -10,17 +10,21 @@ import java.time.LocalDateTime;
  * Entity representing a chat message
  */
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages", indexes = {
+    @Index(name = "idx_chat_messages_session_timestamp", columnList = "session_id, timestamp"),
+    @Index(name = "idx_chat_messages_session_id", columnList = "session_id, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class ChatMessage {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chat_message_seq")
+    @SequenceGenerator(name = "chat_message_seq", sequenceName = "chat_messages_seq", allocationSize = 50)
     private Long id;
     
-    @Column(nullable = false)
+    @Column(nullable = false, length = 65535)
     private String content;
     
     @Enumerated(EnumType.STRING)
@@ -36,7 +40,8 @@ public class ChatMessage {
     @Column(name = "user_id")
     private String userId;
     
-    @Column(name = "ai_response")
+    /** Only set where it differs from the content; an AI message's reply is its content */
+    @Column(name = "ai_response", length = 65535)
     private String aiResponse;
     
     @Column(name = "mcp_tools_used")
@@ -48,6 +53,9 @@ public class ChatMessage {
     
     @PrePersist
     protected void onCreate() {
-        timestamp = LocalDateTime.now();
+        // Write-behind persistence stamps messages when they are queued
+        if (timestamp == null) {
+            timestamp = LocalDateTime.now();
+        }
     }
 }
@@ -21,6 +21,7 @@ public class ChatResponse {
     private LocalDateTime timestamp;
     private String sessionId;
     private List<String> mcpToolsUsed;
+    private List<ToolExecutionResult> toolResults;
     private Map<String, Object> context;
     private boolean success;
     private String error;
@@ -0,0 +1,38 @@
+package com.aichat.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.util.List;
+
+/**
+ * One page of chat search results, best match first
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatSearchPage {
+    
+    private List<Hit> results;
+    
+    /**
+     * Number of messages matching the query and filters
+     */
+    private long totalHits;
+    
+    private int page;
+    
+    private int size;
+    
+    private boolean hasMore;
+    
+    private long tookMs;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Hit {
+        private ChatMessage message;
+        private float score;
+    }
+}
@@ -0,0 +1,62 @@
+package com.aichat.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+/**
+ * Frame exchanged over the chat WebSocket. Every frame except connection
+ * level errors belongs to one chat session, so a single connection carries
+ * many sessions.
+ */
+@Data
+@NoArgsConstructor
+public class ChatSocketFrame {
+
+    private FrameType type;
+    private String sessionId;
+    /** Client-chosen ID tying stream events to the chat frame that started them */
+    private String requestId;
+    private Integer credits;
+    private Integer limit;
+    private ChatRequest request;
+    private ChatStreamEvent event;
+    private ChatMessage message;
+    private List<ChatMessage> messages;
+    private String error;
+
+    public enum FrameType {
+        /** Client: start receiving a session's messages, with an initial credit grant */
+        SUBSCRIBE,
+        /** Client: stop receiving a session's messages and cancel its replies */
+        UNSUBSCRIBE,
+        /** Client: grant the server more frames for a session */
+        CREDIT,
+        /** Client: run a chat turn; server: replies with EVENT frames */
+        CHAT,
+        /** Client: request recent history; server: the history snapshot */
+        HISTORY,
+        /** Server: a stream event of a chat turn */
+        EVENT,
+        /** Server: a message saved to a subscribed session */
+        MESSAGE,
+        /** Server: pushed messages were dropped while out of credits; reload history */
+        OVERFLOW,
+        /** Server: the frame could not be processed */
+        ERROR
+    }
+
+    public static ChatSocketFrame of(FrameType type, String sessionId) {
+        ChatSocketFrame frame = new ChatSocketFrame();
+        frame.setType(type);
+        frame.setSessionId(sessionId);
+        return frame;
+    }
+
+    public static ChatSocketFrame error(String sessionId, String requestId, String error) {
+        ChatSocketFrame frame = of(FrameType.ERROR, sessionId);
+        frame.setRequestId(requestId);
+        frame.setError(error);
+        return frame;
+    }
+}
@@ -0,0 +1,42 @@
+package com.aichat.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * Event emitted while streaming an AI response to the frontend
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatStreamEvent {
+
+    private EventType type;
+    private String sessionId;
+    private String content;
+    private String tool;
+    private String status;
+    private ChatResponse response;
+    private String error;
+
+    public enum EventType {
+        CHUNK, TOOL, DONE, ERROR
+    }
+
+    public static ChatStreamEvent chunk(String sessionId, String content) {
+        return new ChatStreamEvent(EventType.CHUNK, sessionId, content, null, null, null, null);
+    }
+
+    public static ChatStreamEvent tool(String sessionId, String tool, String status) {
+        return new ChatStreamEvent(EventType.TOOL, sessionId, null, tool, status, null, null);
+    }
+
+    public static ChatStreamEvent done(ChatResponse response) {
+        return new ChatStreamEvent(EventType.DONE, response.getSessionId(), null, null, null, response, null);
+    }
+
+    public static ChatStreamEvent error(String sessionId, String error) {
+        return new ChatStreamEvent(EventType.ERROR, sessionId, null, null, null, null, error);
+    }
+}
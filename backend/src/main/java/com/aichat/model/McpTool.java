@@ -1,5 +1,6 @@
 package com.aichat.model;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -16,8 +17,10 @@ public class McpTool {
     
     private String name;
     private String description;
-    private String inputSchema;
+    /** JSON Schema of the parameters, checked before the tool is called */
+    private Map<String, Object> inputSchema;
     private String outputSchema;
+    @JsonAlias("operations")
     private List<String> capabilities;
     private Map<String, Object> parameters;
     private boolean enabled;
@@ -27,4 +30,10 @@ public class McpTool {
         this.description = description;
         this.enabled = true;
     }
+    
+    public McpTool(String name, String description, Map<String, Object> inputSchema, List<String> capabilities) {
+        this(name, description);
+        this.inputSchema = inputSchema;
+        this.capabilities = capabilities;
+    }
 }
@@ -0,0 +1,21 @@
+package com.aichat.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import jakarta.validation.constraints.NotBlank;
+import java.util.Map;
+
+/**
+ * A single tool call within a batch execute request
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class McpToolInvocation {
+    
+    @NotBlank(message = "Tool name is required")
+    private String toolName;
+    
+    private Map<String, Object> parameters;
+}
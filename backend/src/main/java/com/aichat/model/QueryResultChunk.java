@@ -0,0 +1,31 @@
+package com.aichat.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+/**
+ * A chunk of a streamed query result. The first chunk carries the column
+ * names and the last one the totals; a failed query ends with an error chunk.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class QueryResultChunk {
+
+    private List<String> columns;
+    private List<List<Object>> rows;
+    /** Set on the last chunk */
+    private Long rowCount;
+    /** Set on the last chunk; whether the row or byte limit cut the result short */
+    private Boolean truncated;
+    private Long tookMs;
+    private String error;
+
+    public static QueryResultChunk error(String message) {
+        QueryResultChunk chunk = new QueryResultChunk();
+        chunk.setError(message);
+        return chunk;
+    }
+}
@@ -0,0 +1,30 @@
+package com.aichat.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keyword rules for contextual replies. Rules are checked in order; the
+ * first rule with a keyword anywhere in the message supplies the reply.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResponseRuleSet {
+
+    private String defaultReply;
+    private List<Rule> rules = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rule {
+        private String name;
+        /** Matched case-insensitively as substrings of the message */
+        private List<String> keywords = new ArrayList<>();
+        private String reply;
+    }
+}
@@ -0,0 +1,47 @@
+package com.aichat.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * Outcome of a single MCP tool execution
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ToolExecutionResult {
+    
+    private String tool;
+    private Status status;
+    private Object result;
+    private String error;
+    private long durationMs;
+    /**
+     * Position of the invocation in a batch request
+     */
+    private Integer index;
+    
+    public enum Status {
+        SUCCESS, FAILED, TIMEOUT, SKIPPED
+    }
+    
+    public static ToolExecutionResult success(String tool, Object result, long durationMs) {
+        return new ToolExecutionResult(tool, Status.SUCCESS, result, null, durationMs, null);
+    }
+    
+    public static ToolExecutionResult failed(String tool, String error, long durationMs) {
+        return new ToolExecutionResult(tool, Status.FAILED, null, error, durationMs, null);
+    }
+    
+    public static ToolExecutionResult timeout(String tool, long durationMs) {
+        return new ToolExecutionResult(tool, Status.TIMEOUT, null, "Timed out after " + durationMs + "ms", durationMs, null);
+    }
+    
+    /**
+     * A tool that was not called, e.g. because a chat turn gave it no parameters
+     */
+    public static ToolExecutionResult skipped(String tool, String reason) {
+        return new ToolExecutionResult(tool, Status.SKIPPED, null, reason, 0, null);
+    }
+}
@@ -1,17 +1,24 @@
 package com.aichat.repository;
 
 import com.aichat.model.ChatMessage;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for ChatMessage entity
  */
 @Repository
-public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
+public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>, TieredChatMessageRepository {
     
     /**
      * Find messages by session ID
@@ -23,6 +30,18 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
      */
     List<ChatMessage> findByUserIdOrderByTimestampDesc(String userId);
     
+    /**
+     * Stream a user's messages, oldest first, through a forward-only cursor.
+     * Must be consumed inside a transaction and closed.
+     */
+    @QueryHints({
+        @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.userId = :userId ORDER BY cm.id ASC")
+    Stream<ChatMessage> streamByUserId(@Param("userId") String userId);
+    
     /**
      * Find recent messages by session ID with limit
      */
@@ -30,9 +49,53 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
     List<ChatMessage> findRecentBySessionId(@Param("sessionId") String sessionId, org.springframework.data.domain.Pageable pageable);
     
     /**
-     * Delete messages by session ID
+     * Find the newest page of a session, newest first
+     */
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.sessionId = :sessionId ORDER BY cm.id DESC")
+    List<ChatMessage> findLatestPage(@Param("sessionId") String sessionId, org.springframework.data.domain.Pageable pageable);
+    
+    /**
+     * Find messages of all sessions newer than a message ID, oldest first
+     */
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.id > :afterId ORDER BY cm.id ASC")
+    List<ChatMessage> findAllAfter(@Param("afterId") Long afterId, org.springframework.data.domain.Pageable pageable);
+    
+    /**
+     * Find sessions whose newest message is older than a cutoff
+     */
+    @Query("SELECT cm.sessionId FROM ChatMessage cm WHERE cm.sessionId IS NOT NULL GROUP BY cm.sessionId HAVING MAX(cm.timestamp) < :cutoff")
+    List<String> findIdleSessionIds(@Param("cutoff") java.time.LocalDateTime cutoff, org.springframework.data.domain.Pageable pageable);
+    
+    /**
+     * Delete messages by session ID in a single statement, returning the rows removed
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ChatMessage cm WHERE cm.sessionId = :sessionId")
+    int deleteBySessionId(@Param("sessionId") String sessionId);
+    
+    /**
+     * Delete the messages of several sessions in a single statement, returning the rows removed
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ChatMessage cm WHERE cm.sessionId IN :sessionIds")
+    int deleteBySessionIdIn(@Param("sessionIds") Collection<String> sessionIds);
+    
+    /**
+     * Delete the messages of several sessions older than a cutoff in a single
+     * statement, so a message saved since the sessions were found idle is kept
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ChatMessage cm WHERE cm.sessionId IN :sessionIds AND cm.timestamp < :cutoff")
+    int deleteBySessionIdInBefore(@Param("sessionIds") Collection<String> sessionIds, @Param("cutoff") java.time.LocalDateTime cutoff);
+    
+    /**
+     * Of the given sessions, those with a message at or after a cutoff
      */
-    void deleteBySessionId(String sessionId);
+    @Query("SELECT DISTINCT cm.sessionId FROM ChatMessage cm WHERE cm.sessionId IN :sessionIds AND cm.timestamp >= :cutoff")
+    List<String> findActiveSessionIds(@Param("sessionIds") Collection<String> sessionIds, @Param("cutoff") java.time.LocalDateTime cutoff);
     
     /**
      * Count messages by session ID
@@ -0,0 +1,687 @@
+package com.aichat.repository;
+
+import com.aichat.config.ChatProperties;
+import com.aichat.model.ChatMessage;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Cold tier for chat history: append-only segment files of compressed
+ * message blocks, read through memory mapping.
+ *
+ * <p>Each block holds up to {@code blockMessages} consecutive messages of one
+ * session. A segment has a sidecar index with one entry per block (session,
+ * offset, ID range, newest timestamp), loaded into memory at startup, so a read decodes only
+ * the blocks it needs. The segment itself is the source of truth: blocks
+ * missing from the index are recovered by scanning, and a torn tail left by
+ * a crash is truncated. Deleted sessions are recorded in a tombstone log;
+ * segments without live blocks are removed.
+ */
+@Component
+@Slf4j
+public class ChatSegmentStore {
+
+    private static final int RECORD_MAGIC = 0x43485342;
+    /** Magic, payload length and CRC of the payload */
+    private static final int RECORD_HEADER_BYTES = 12;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String INDEX_SUFFIX = ".idx";
+    /** Index entry after the session ID: offset, length, ID range, count and newest timestamp */
+    private static final int INDEX_ENTRY_BYTES = 8 + 4 + 8 + 8 + 4 + 8;
+
+    private final ChatProperties.Archive settings;
+    private final ObjectMapper objectMapper;
+    private final JavaType messageList;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private final Map<String, List<Block>> blocksBySession = new HashMap<>();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private Segment active;
+    private FileChannel tombstones;
+    private long maxMessageId;
+
+    public ChatSegmentStore(ChatProperties chatProperties, ObjectMapper objectMapper) {
+        this.settings = chatProperties.getArchive();
+        this.objectMapper = objectMapper;
+        this.messageList = objectMapper.getTypeFactory().constructCollectionType(List.class, ChatMessage.class);
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        Path directory = Paths.get(settings.getDirectory());
+        Files.createDirectories(directory);
+
+        List<Path> segmentFiles;
+        try (Stream<Path> files = Files.list(directory)) {
+            segmentFiles = files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+        for (Path path : segmentFiles) {
+            String name = path.getFileName().toString();
+            Segment segment = openSegment(Integer.parseInt(name.substring("segment-".length(), name.length() - SEGMENT_SUFFIX.length())));
+            segments.put(segment.id, segment);
+            loadSegment(segment);
+        }
+
+        Path tombstonePath = directory.resolve("tombstones.log");
+        tombstones = FileChannel.open(tombstonePath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        applyTombstones();
+
+        for (Segment segment : List.copyOf(segments.values())) {
+            if (segment.liveBlocks == 0 && segment.size > 0) {
+                removeSegment(segment);
+            }
+        }
+        active = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        log.info("Opened chat archive at {}: {} sessions in {} segments", directory.toAbsolutePath(), blocksBySession.size(), segments.size());
+    }
+
+    @PreDestroy
+    void close() {
+        lock.writeLock().lock();
+        try {
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+            if (tombstones != null) {
+                tombstones.close();
+            }
+        } catch (IOException e) {
+            log.warn("Could not close chat archive: {}", e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    /**
+     * Append a session's messages, ordered by ID. The data is on disk when
+     * this returns, so the caller may then drop the messages from the hot tier.
+     */
+    public void append(String sessionId, List<ChatMessage> messages) {
+        if (!settings.isEnabled()) {
+            throw new IllegalStateException("Chat archive is disabled");
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+        int blockSize = Math.max(1, settings.getBlockMessages());
+        List<ByteBuffer> records = new ArrayList<>();
+        for (int from = 0; from < messages.size(); from += blockSize) {
+            records.add(encode(sessionId, messages.subList(from, Math.min(messages.size(), from + blockSize))));
+        }
+
+        lock.writeLock().lock();
+        try {
+            List<Block> written = new ArrayList<>(records.size());
+            Set<Segment> touched = new HashSet<>();
+            for (ByteBuffer record : records) {
+                Segment segment = segmentFor(record.remaining());
+                Block block = segment.write(sessionId, record);
+                written.add(block);
+                touched.add(segment);
+            }
+            for (Segment segment : touched) {
+                segment.force();
+            }
+            for (Block block : written) {
+                addBlock(sessionId, block);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to chat archive", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Whether any archived messages of the session exist
+     */
+    public boolean contains(String sessionId) {
+        if (!settings.isEnabled()) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return blocksBySession.containsKey(sessionId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * All archived messages of a session, oldest first
+     */
+    public List<ChatMessage> read(String sessionId) {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (Block block : blocks(sessionId)) {
+            messages.addAll(decode(block));
+        }
+        return messages;
+    }
+
+    /**
+     * Up to limit archived messages of a session older than a message ID
+     * (or the newest ones when null), newest first
+     */
+    public List<ChatMessage> readBefore(String sessionId, Long beforeId, int limit) {
+        List<Block> blocks = blocks(sessionId);
+        List<ChatMessage> messages = new ArrayList<>(Math.min(limit, 256));
+        for (int i = blocks.size() - 1; i >= 0 && messages.size() < limit; i--) {
+            Block block = blocks.get(i);
+            if (beforeId != null && block.firstId >= beforeId) {
+                continue;
+            }
+            List<ChatMessage> decoded = decode(block);
+            for (int j = decoded.size() - 1; j >= 0 && messages.size() < limit; j--) {
+                ChatMessage message = decoded.get(j);
+                if (beforeId == null || message.getId() < beforeId) {
+                    messages.add(message);
+                }
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Up to limit archived messages of a session newer than a message ID, oldest first
+     */
+    public List<ChatMessage> readAfter(String sessionId, long afterId, int limit) {
+        List<ChatMessage> messages = new ArrayList<>(Math.min(limit, 256));
+        for (Block block : blocks(sessionId)) {
+            if (messages.size() >= limit) {
+                break;
+            }
+            if (block.lastId <= afterId) {
+                continue;
+            }
+            for (ChatMessage message : decode(block)) {
+                if (message.getId() > afterId && messages.size() < limit) {
+                    messages.add(message);
+                }
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * The archived messages of a session with the given IDs
+     */
+    public List<ChatMessage> readByIds(String sessionId, Collection<Long> ids) {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (Block block : blocks(sessionId)) {
+            boolean inRange = ids.stream().anyMatch(id -> id >= block.firstId && id <= block.lastId);
+            if (inRange) {
+                for (ChatMessage message : decode(block)) {
+                    if (ids.contains(message.getId())) {
+                        messages.add(message);
+                    }
+                }
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Visit every archived message, one session at a time, sessions in the
+     * order of their first message and each oldest first
+     */
+    public void forEach(Consumer<ChatMessage> consumer) {
+        List<String> sessionIds;
+        lock.readLock().lock();
+        try {
+            sessionIds = new ArrayList<>(blocksBySession.keySet());
+            sessionIds.sort(Comparator.comparingLong(sessionId -> blocksBySession.get(sessionId).get(0).firstId));
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (String sessionId : sessionIds) {
+            read(sessionId).forEach(consumer);
+        }
+    }
+
+    /**
+     * Sessions whose newest archived message is older than the cutoff, read
+     * from the in-memory index
+     */
+    public List<String> findIdleSessionIds(LocalDateTime cutoff) {
+        if (!settings.isEnabled()) {
+            return List.of();
+        }
+        long cutoffMillis = epochMillis(cutoff);
+        lock.readLock().lock();
+        try {
+            List<String> idle = new ArrayList<>();
+            blocksBySession.forEach((sessionId, blocks) -> {
+                if (blocks.stream().mapToLong(Block::lastTimestamp).max().orElse(0) < cutoffMillis) {
+                    idle.add(sessionId);
+                }
+            });
+            return idle;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Drop every archived message of a session, returning the messages dropped
+     */
+    public int deleteSession(String sessionId) {
+        if (!settings.isEnabled()) {
+            return 0;
+        }
+        lock.writeLock().lock();
+        try {
+            List<Block> blocks = blocksBySession.remove(sessionId);
+            if (blocks == null) {
+                return 0;
+            }
+            long upToId = blocks.get(blocks.size() - 1).lastId;
+            byte[] session = sessionId.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer entry = ByteBuffer.allocate(2 + session.length + 8).putShort((short) session.length).put(session).putLong(upToId).flip();
+            tombstones.write(entry, tombstones.size());
+            tombstones.force(false);
+            for (Block block : blocks) {
+                block.segment.liveBlocks--;
+            }
+            for (Block block : blocks) {
+                if (block.segment.liveBlocks == 0 && block.segment != active && segments.containsKey(block.segment.id)) {
+                    removeSegment(block.segment);
+                }
+            }
+            return blocks.stream().mapToInt(Block::count).sum();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete session " + sessionId + " from chat archive", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Highest message ID ever archived, so the ID sequence can be moved past it
+     */
+    public long maxMessageId() {
+        lock.readLock().lock();
+        try {
+            return maxMessageId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Session, segment and size statistics
+     */
+    public Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("enabled", settings.isEnabled());
+            stats.put("sessions", blocksBySession.size());
+            stats.put("blocks", blocksBySession.values().stream().mapToInt(List::size).sum());
+            stats.put("messages", blocksBySession.values().stream().flatMap(List::stream).mapToLong(block -> block.count).sum());
+            stats.put("segments", segments.size());
+            stats.put("bytes", segments.values().stream().mapToLong(segment -> segment.size).sum());
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Block> blocks(String sessionId) {
+        if (!settings.isEnabled()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            List<Block> blocks = blocksBySession.get(sessionId);
+            return blocks != null ? List.copyOf(blocks) : List.of();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addBlock(String sessionId, Block block) {
+        List<Block> blocks = blocksBySession.computeIfAbsent(sessionId, id -> new ArrayList<>());
+        // Blocks are kept in ID order; appends almost always land at the end
+        int index = blocks.size();
+        while (index > 0 && blocks.get(index - 1).firstId > block.firstId) {
+            index--;
+        }
+        blocks.add(index, block);
+        block.segment.liveBlocks++;
+        maxMessageId = Math.max(maxMessageId, block.lastId);
+    }
+
+    private Segment segmentFor(int recordBytes) throws IOException {
+        if (active == null || (active.size > 0 && active.size + recordBytes > settings.getSegmentSize().toBytes())) {
+            int id = active == null ? 1 : active.id + 1;
+            active = openSegment(id);
+            segments.put(id, active);
+        }
+        return active;
+    }
+
+    private Segment openSegment(int id) throws IOException {
+        Path directory = Paths.get(settings.getDirectory());
+        String name = String.format("segment-%08d", id);
+        return new Segment(id, directory.resolve(name + SEGMENT_SUFFIX), directory.resolve(name + INDEX_SUFFIX));
+    }
+
+    private void removeSegment(Segment segment) throws IOException {
+        segments.remove(segment.id);
+        segment.close();
+        Files.deleteIfExists(segment.path);
+        Files.deleteIfExists(segment.indexPath);
+        log.debug("Removed chat archive segment {} without live blocks", segment.id);
+    }
+
+    /**
+     * Load a segment's index, then index any records written after it and
+     * truncate a torn tail
+     */
+    private void loadSegment(Segment segment) throws IOException {
+        long indexed = 0;
+        ByteBuffer index = ByteBuffer.wrap(Files.exists(segment.indexPath) ? Files.readAllBytes(segment.indexPath) : new byte[0]);
+        long validIndexBytes = 0;
+        while (index.remaining() >= 2) {
+            int sessionLength = index.getShort(index.position()) & 0xFFFF;
+            if (index.remaining() < 2 + sessionLength + INDEX_ENTRY_BYTES) {
+                break;
+            }
+            index.getShort();
+            byte[] session = new byte[sessionLength];
+            index.get(session);
+            Block block = new Block(segment, index.getLong(), index.getInt(), index.getLong(), index.getLong(), index.getInt(), index.getLong());
+            if (block.offset + block.length > segment.size) {
+                break;
+            }
+            addBlock(new String(session, StandardCharsets.UTF_8), block);
+            indexed = Math.max(indexed, block.offset + block.length);
+            validIndexBytes = index.position();
+        }
+        segment.index.truncate(validIndexBytes);
+        segment.indexSize = validIndexBytes;
+
+        long position = indexed;
+        int recovered = 0;
+        while (position + RECORD_HEADER_BYTES <= segment.size) {
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+            segment.channel.read(header, position);
+            header.flip();
+            int payloadLength = header.getInt(4);
+            if (header.getInt(0) != RECORD_MAGIC || payloadLength < 0 || position + RECORD_HEADER_BYTES + payloadLength > segment.size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(payloadLength);
+            segment.channel.read(payload, position + RECORD_HEADER_BYTES);
+            payload.flip();
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != header.getInt(8)) {
+                break;
+            }
+            String sessionId = readString(payload);
+            Block block = new Block(segment, position, RECORD_HEADER_BYTES + payloadLength,
+                    payload.getLong(), payload.getLong(), payload.getInt(), payload.getLong());
+            segment.writeIndexEntry(sessionId, block);
+            addBlock(sessionId, block);
+            position += block.length;
+            recovered++;
+        }
+        if (position < segment.size) {
+            log.warn("Truncating chat archive segment {} from {} to {} bytes", segment.id, segment.size, position);
+            segment.channel.truncate(position);
+            segment.size = position;
+        }
+        if (recovered > 0) {
+            segment.force();
+            log.info("Recovered {} unindexed blocks in chat archive segment {}", recovered, segment.id);
+        }
+    }
+
+    private void applyTombstones() throws IOException {
+        ByteBuffer log = ByteBuffer.allocate((int) tombstones.size());
+        tombstones.read(log, 0);
+        log.flip();
+        Map<String, Long> deletedUpTo = new HashMap<>();
+        while (log.remaining() >= 2) {
+            int sessionLength = log.getShort(log.position()) & 0xFFFF;
+            if (log.remaining() < 2 + sessionLength + 8) {
+                break;
+            }
+            String sessionId = readString(log);
+            deletedUpTo.merge(sessionId, log.getLong(), Math::max);
+        }
+        deletedUpTo.forEach((sessionId, upToId) -> {
+            List<Block> blocks = blocksBySession.get(sessionId);
+            if (blocks == null) {
+                return;
+            }
+            blocks.removeIf(block -> {
+                if (block.lastId <= upToId) {
+                    block.segment.liveBlocks--;
+                    return true;
+                }
+                return false;
+            });
+            if (blocks.isEmpty()) {
+                blocksBySession.remove(sessionId);
+            }
+        });
+    }
+
+    /**
+     * Record layout: magic, payload length, payload CRC, then the payload of
+     * session ID, first and last message ID, message count, newest message
+     * timestamp, uncompressed length and the deflated JSON array of messages
+     */
+    private ByteBuffer encode(String sessionId, List<ChatMessage> messages) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(messages);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serialize archived messages", e);
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        byte[] compressed;
+        try {
+            deflater.setInput(json);
+            deflater.finish();
+            byte[] buffer = new byte[json.length + 64];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            compressed = Arrays.copyOf(buffer, length);
+        } finally {
+            deflater.end();
+        }
+
+        byte[] session = sessionId.getBytes(StandardCharsets.UTF_8);
+        long lastTimestamp = messages.stream()
+                .filter(message -> message.getTimestamp() != null)
+                .mapToLong(message -> epochMillis(message.getTimestamp()))
+                .max().orElse(0);
+        int payloadLength = 2 + session.length + 8 + 8 + 4 + 8 + 4 + compressed.length;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payloadLength);
+        record.putInt(RECORD_MAGIC).putInt(payloadLength).putInt(0);
+        record.putShort((short) session.length).put(session)
+                .putLong(messages.get(0).getId())
+                .putLong(messages.get(messages.size() - 1).getId())
+                .putInt(messages.size())
+                .putLong(lastTimestamp)
+                .putInt(json.length)
+                .put(compressed);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER_BYTES, payloadLength);
+        record.putInt(8, (int) crc.getValue());
+        return record.flip();
+    }
+
+    private List<ChatMessage> decode(Block block) {
+        ByteBuffer record = block.segment.map(block.offset + block.length).slice((int) block.offset, block.length);
+        ByteBuffer payload = record.slice(RECORD_HEADER_BYTES, block.length - RECORD_HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if (record.getInt(0) != RECORD_MAGIC || (int) crc.getValue() != record.getInt(8)) {
+            throw new IllegalStateException("Corrupt block at " + block.offset + " in chat archive segment " + block.segment.id);
+        }
+        readString(payload);
+        payload.position(payload.position() + 8 + 8 + 4 + 8);
+        byte[] json = new byte[payload.getInt()];
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(payload);
+            int length = 0;
+            while (length < json.length && !inflater.finished()) {
+                length += inflater.inflate(json, length, json.length - length);
+            }
+            return objectMapper.readValue(json, messageList);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt block at " + block.offset + " in chat archive segment " + block.segment.id, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read archived messages", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /** Message timestamps are local date-times; they are compared as if UTC */
+    private static long epochMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One segment file with its block index. Size and index fields are
+     * guarded by the store lock; the mapping is replaced when reads reach
+     * past it.
+     */
+    private static final class Segment {
+
+        private final int id;
+        private final Path path;
+        private final Path indexPath;
+        private final FileChannel channel;
+        private final FileChannel index;
+        private long size;
+        private long indexSize;
+        private int liveBlocks;
+        private volatile MappedByteBuffer mapped;
+
+        Segment(int id, Path path, Path indexPath) throws IOException {
+            this.id = id;
+            this.path = path;
+            this.indexPath = indexPath;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.index = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.size = channel.size();
+            this.indexSize = index.size();
+        }
+
+        Block write(String sessionId, ByteBuffer record) throws IOException {
+            long offset = size;
+            int length = record.remaining();
+            // ID range, count and newest timestamp follow the session ID in the payload
+            int ids = RECORD_HEADER_BYTES + 2 + (record.getShort(RECORD_HEADER_BYTES) & 0xFFFF);
+            long firstId = record.getLong(ids);
+            long lastId = record.getLong(ids + 8);
+            int count = record.getInt(ids + 16);
+            long lastTimestamp = record.getLong(ids + 20);
+            while (record.hasRemaining()) {
+                channel.write(record, offset + length - record.remaining());
+            }
+            size += length;
+            Block block = new Block(this, offset, length, firstId, lastId, count, lastTimestamp);
+            writeIndexEntry(sessionId, block);
+            return block;
+        }
+
+        void writeIndexEntry(String sessionId, Block block) throws IOException {
+            byte[] session = sessionId.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer entry = ByteBuffer.allocate(2 + session.length + INDEX_ENTRY_BYTES)
+                    .putShort((short) session.length).put(session)
+                    .putLong(block.offset).putInt(block.length)
+                    .putLong(block.firstId).putLong(block.lastId).putInt(block.count)
+                    .putLong(block.lastTimestamp)
+                    .flip();
+            while (entry.hasRemaining()) {
+                indexSize += index.write(entry, indexSize);
+            }
+        }
+
+        void force() throws IOException {
+            // Data before index, so an index entry never points past the data
+            channel.force(false);
+            index.force(false);
+        }
+
+        ByteBuffer map(long requiredBytes) {
+            MappedByteBuffer current = mapped;
+            if (current == null || current.capacity() < requiredBytes) {
+                synchronized (this) {
+                    current = mapped;
+                    if (current == null || current.capacity() < requiredBytes) {
+                        try {
+                            current = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException("Could not map chat archive segment " + id, e);
+                        }
+                        mapped = current;
+                    }
+                }
+            }
+            return current.duplicate();
+        }
+
+        void close() throws IOException {
+            channel.close();
+            index.close();
+        }
+    }
+
+    /** lastTimestamp is the newest message's timestamp in epoch milliseconds */
+    private record Block(Segment segment, long offset, int length, long firstId, long lastId, int count, long lastTimestamp) {
+    }
+}
@@ -0,0 +1,51 @@
+package com.aichat.repository;
+
+import com.aichat.model.ChatMessage;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Session history reads across the relational hot tier and the archived
+ * cold tier. Callers see one history per session, ordered by message ID.
+ */
+public interface TieredChatMessageRepository {
+    
+    /**
+     * All messages of a session, oldest first
+     */
+    List<ChatMessage> findSessionHistory(String sessionId);
+    
+    /**
+     * Up to limit messages of a session older than a message ID (the newest
+     * ones when null), newest first
+     */
+    List<ChatMessage> findSessionPageBefore(String sessionId, Long beforeId, int limit);
+    
+    /**
+     * Up to limit messages of a session newer than a message ID, oldest first
+     */
+    List<ChatMessage> findSessionPageAfter(String sessionId, Long afterId, int limit);
+    
+    /**
+     * Messages of a session with the given IDs, from either tier
+     */
+    List<ChatMessage> findInSession(String sessionId, Collection<Long> ids);
+    
+    /**
+     * Visit every archived message, session by session in the order of each
+     * session's first message, each session oldest first
+     */
+    void forEachArchived(Consumer<ChatMessage> consumer);
+    
+    /**
+     * Drop a session's archived messages, returning the messages dropped
+     */
+    int deleteArchivedSession(String sessionId);
+    
+    /**
+     * Archived sessions whose newest archived message is older than a cutoff
+     */
+    List<String> findIdleArchivedSessionIds(LocalDateTime cutoff);
+}
@@ -0,0 +1,138 @@
+package com.aichat.repository;
+
+import com.aichat.model.ChatMessage;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Merges hot-tier query results with the segment store. Sessions that were
+ * never archived cost one relational query, as before.
+ */
+class TieredChatMessageRepositoryImpl implements TieredChatMessageRepository {
+    
+    private static final Comparator<ChatMessage> OLDEST_FIRST = Comparator.comparing(ChatMessage::getId);
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    private final ChatSegmentStore segmentStore;
+    
+    TieredChatMessageRepositoryImpl(ChatSegmentStore segmentStore) {
+        this.segmentStore = segmentStore;
+    }
+    
+    @Override
+    public List<ChatMessage> findSessionHistory(String sessionId) {
+        List<ChatMessage> hot = entityManager.createQuery(
+                "SELECT cm FROM ChatMessage cm WHERE cm.sessionId = :sessionId ORDER BY cm.id ASC", ChatMessage.class)
+            .setParameter("sessionId", sessionId)
+            .getResultList();
+        if (!segmentStore.contains(sessionId)) {
+            return hot;
+        }
+        return merge(segmentStore.read(sessionId), hot, OLDEST_FIRST, Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public List<ChatMessage> findSessionPageBefore(String sessionId, Long beforeId, int limit) {
+        TypedQuery<ChatMessage> query = entityManager.createQuery(beforeId == null
+                    ? "SELECT cm FROM ChatMessage cm WHERE cm.sessionId = :sessionId ORDER BY cm.id DESC"
+                    : "SELECT cm FROM ChatMessage cm WHERE cm.sessionId = :sessionId AND cm.id < :beforeId ORDER BY cm.id DESC",
+                ChatMessage.class)
+            .setParameter("sessionId", sessionId)
+            .setMaxResults(limit);
+        if (beforeId != null) {
+            query.setParameter("beforeId", beforeId);
+        }
+        List<ChatMessage> hot = query.getResultList();
+        if (!segmentStore.contains(sessionId)) {
+            return hot;
+        }
+        // Archived messages are older than hot ones, so a full hot page needs no archive read
+        if (hot.size() >= limit) {
+            return hot;
+        }
+        Long archiveBefore = hot.isEmpty() ? beforeId : hot.get(hot.size() - 1).getId();
+        return merge(segmentStore.readBefore(sessionId, archiveBefore, limit), hot, OLDEST_FIRST.reversed(), limit);
+    }
+    
+    @Override
+    public List<ChatMessage> findSessionPageAfter(String sessionId, Long afterId, int limit) {
+        long after = afterId != null ? afterId : 0L;
+        List<ChatMessage> archived = segmentStore.contains(sessionId)
+            ? segmentStore.readAfter(sessionId, after, limit)
+            : List.of();
+        if (archived.size() >= limit) {
+            return archived;
+        }
+        List<ChatMessage> hot = entityManager.createQuery(
+                "SELECT cm FROM ChatMessage cm WHERE cm.sessionId = :sessionId AND cm.id > :afterId ORDER BY cm.id ASC", ChatMessage.class)
+            .setParameter("sessionId", sessionId)
+            .setParameter("afterId", after)
+            .setMaxResults(limit)
+            .getResultList();
+        return archived.isEmpty() ? hot : merge(archived, hot, OLDEST_FIRST, limit);
+    }
+    
+    @Override
+    public List<ChatMessage> findInSession(String sessionId, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<ChatMessage> found = new ArrayList<>(entityManager.createQuery(
+                "SELECT cm FROM ChatMessage cm WHERE cm.id IN :ids", ChatMessage.class)
+            .setParameter("ids", ids)
+            .getResultList());
+        if (found.size() < ids.size() && segmentStore.contains(sessionId)) {
+            Set<Long> missing = new HashSet<>(ids);
+            found.forEach(message -> missing.remove(message.getId()));
+            found.addAll(segmentStore.readByIds(sessionId, missing));
+        }
+        return found;
+    }
+    
+    @Override
+    public void forEachArchived(Consumer<ChatMessage> consumer) {
+        segmentStore.forEach(consumer);
+    }
+    
+    @Override
+    public int deleteArchivedSession(String sessionId) {
+        return segmentStore.deleteSession(sessionId);
+    }
+    
+    @Override
+    public List<String> findIdleArchivedSessionIds(LocalDateTime cutoff) {
+        return segmentStore.findIdleSessionIds(cutoff);
+    }
+    
+    /**
+     * Merge two lists sorted in the same order, dropping messages present in
+     * both while a session is being moved between tiers
+     */
+    private static List<ChatMessage> merge(List<ChatMessage> archived, List<ChatMessage> hot,
+                                           Comparator<ChatMessage> order, int limit) {
+        List<ChatMessage> merged = new ArrayList<>(Math.min(limit, archived.size() + hot.size()));
+        int a = 0;
+        int h = 0;
+        while (merged.size() < limit && (a < archived.size() || h < hot.size())) {
+            if (h == hot.size()) {
+                merged.add(archived.get(a++));
+            } else if (a == archived.size()) {
+                merged.add(hot.get(h++));
+            } else {
+                int compared = order.compare(archived.get(a), hot.get(h));
+                if (compared == 0) {
+                    a++;
+                } else {
+                    merged.add(compared < 0 ? archived.get(a++) : hot.get(h++));
+                }
+            }
+        }
+        return merged;
+    }
+}
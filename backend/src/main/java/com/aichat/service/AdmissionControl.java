@@ -0,0 +1,165 @@
+package com.aichat.service;
+
+import com.aichat.config.AdmissionProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides whether a request may start work: per-user and per-session rate
+ * limits for each endpoint, per-user limits for each MCP tool, and a cap on
+ * requests in flight per endpoint. Every check is non-blocking, so a
+ * rejected request costs next to nothing.
+ */
+@Component
+@Slf4j
+public class AdmissionControl {
+
+    public static final String CHAT = "chat";
+    public static final String MCP_EXECUTE = "mcp-execute";
+
+    private final AdmissionProperties settings;
+    private final Map<String, EndpointLimits> endpoints = new HashMap<>();
+    private final Map<String, RateLimiter> tools = new HashMap<>();
+
+    public AdmissionControl(AdmissionProperties admissionProperties) {
+        this.settings = admissionProperties;
+        int maxKeys = settings.getMaxKeys();
+        settings.getEndpoints().forEach((name, endpoint) -> endpoints.put(name, new EndpointLimits(
+                limiter(endpoint.getPerUser(), maxKeys),
+                limiter(endpoint.getPerSession(), maxKeys),
+                endpoint.getMaxConcurrent())));
+        settings.getTools().forEach((tool, limit) -> {
+            RateLimiter limiter = limiter(limit, maxKeys);
+            if (limiter != null) {
+                tools.put(tool, limiter);
+            }
+        });
+        log.info("Admission control {}: endpoints {}, tools {}", settings.isEnabled() ? "enabled" : "disabled",
+                endpoints.keySet(), tools.keySet());
+    }
+
+    /**
+     * Take a concurrency slot for an endpoint. The returned permit must be
+     * released when the request completes; null means the request is shed.
+     */
+    public Permit tryEnter(String endpoint) {
+        EndpointLimits limits = endpoints.get(endpoint);
+        if (!settings.isEnabled() || limits == null || limits.maxConcurrent <= 0) {
+            return Permit.NONE;
+        }
+        while (true) {
+            int current = limits.inFlight.get();
+            if (current >= limits.maxConcurrent) {
+                return null;
+            }
+            if (limits.inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(limits.inFlight);
+            }
+        }
+    }
+
+    /**
+     * Check the rate limits of an endpoint, and of the tools a request will
+     * run. A rejected request gets back the permits its earlier checks took.
+     *
+     * @return Duration.ZERO when admitted, otherwise how long to wait before retrying
+     */
+    public Duration checkRate(String endpoint, String userId, String sessionId, String... toolNames) {
+        if (!settings.isEnabled()) {
+            return Duration.ZERO;
+        }
+        long now = System.nanoTime();
+        List<RateLimiter> limiters = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        EndpointLimits limits = endpoints.get(endpoint);
+        if (limits != null) {
+            if (limits.perUser != null && userId != null) {
+                limiters.add(limits.perUser);
+                keys.add(userId);
+            }
+            if (limits.perSession != null && sessionId != null) {
+                limiters.add(limits.perSession);
+                keys.add(sessionId);
+            }
+        }
+        String caller = userId != null ? userId : sessionId;
+        if (toolNames != null && caller != null) {
+            for (String toolName : toolNames) {
+                RateLimiter limiter = tools.get(toolName);
+                if (limiter != null) {
+                    limiters.add(limiter);
+                    keys.add(caller);
+                }
+            }
+        }
+
+        for (int i = 0; i < limiters.size(); i++) {
+            long wait = limiters.get(i).tryAcquire(keys.get(i), now);
+            if (wait > 0) {
+                for (int taken = 0; taken < i; taken++) {
+                    limiters.get(taken).release(keys.get(taken));
+                }
+                return Duration.ofNanos(wait);
+            }
+        }
+        return Duration.ZERO;
+    }
+
+    public Duration getShedRetryAfter() {
+        return settings.getShedRetryAfter();
+    }
+
+    /**
+     * Value of a Retry-After header: whole seconds, rounded up
+     */
+    public static String retryAfterSeconds(Duration wait) {
+        return Long.toString(Math.max(1, (wait.toMillis() + 999) / 1000));
+    }
+
+    /**
+     * Requests in flight per endpoint with a concurrency limit
+     */
+    public Map<String, Integer> inFlight() {
+        Map<String, Integer> inFlight = new HashMap<>();
+        endpoints.forEach((name, limits) -> inFlight.put(name, limits.inFlight.get()));
+        return inFlight;
+    }
+
+    private static RateLimiter limiter(AdmissionProperties.Limit limit, int maxKeys) {
+        return limit != null && limit.getRate() > 0 ? new RateLimiter(limit.getRate(), limit.getBurst(), maxKeys) : null;
+    }
+
+    private record EndpointLimits(RateLimiter perUser, RateLimiter perSession, int maxConcurrent, AtomicInteger inFlight) {
+        EndpointLimits(RateLimiter perUser, RateLimiter perSession, int maxConcurrent) {
+            this(perUser, perSession, maxConcurrent, new AtomicInteger());
+        }
+    }
+
+    /**
+     * A taken concurrency slot; releasing more than once has no effect
+     */
+    public static final class Permit {
+
+        static final Permit NONE = new Permit(null);
+
+        private final AtomicInteger inFlight;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(AtomicInteger inFlight) {
+            this.inFlight = inFlight;
+        }
+
+        public void release() {
+            if (inFlight != null && released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.aichat.service;
+
+import com.aichat.config.ChatProperties;
+import com.aichat.model.ChatMessage;
+import com.aichat.repository.ChatMessageRepository;
+import com.aichat.repository.ChatSegmentStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Moves sessions that have gone idle from the database into the segment
+ * store, so the hot tier only holds recently active sessions
+ */
+@Component
+@Slf4j
+public class ChatArchiver {
+
+    /** Headroom above the highest known ID when moving the sequence, covering its allocation size */
+    private static final long SEQUENCE_HEADROOM = 100;
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final ChatSegmentStore segmentStore;
+    private final ChatHistoryCache chatHistoryCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final Scheduler blockingScheduler;
+    private final ChatProperties.Archive settings;
+
+    private Disposable sweeper;
+
+    public ChatArchiver(ChatMessageRepository chatMessageRepository,
+                        ChatSegmentStore segmentStore,
+                        ChatHistoryCache chatHistoryCache,
+                        JdbcTemplate jdbcTemplate,
+                        Scheduler blockingScheduler,
+                        ChatProperties chatProperties) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.segmentStore = segmentStore;
+        this.chatHistoryCache = chatHistoryCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.blockingScheduler = blockingScheduler;
+        this.settings = chatProperties.getArchive();
+    }
+
+    @PostConstruct
+    void start() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        advanceIdSequence();
+        sweeper = Flux.interval(settings.getSweepInterval(), settings.getSweepInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> Mono.fromCallable(this::sweep)
+                        .subscribeOn(blockingScheduler)
+                        .onErrorResume(error -> {
+                            log.error("Chat archive sweep failed", error);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (sweeper != null) {
+            sweeper.dispose();
+        }
+    }
+
+    /**
+     * Archive sessions idle past the threshold, returning the number of messages moved
+     */
+    public int sweep() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(settings.getIdleAfter());
+        List<String> idleSessions = chatMessageRepository.findIdleSessionIds(cutoff, PageRequest.of(0, settings.getMaxSessionsPerSweep()));
+        int moved = 0;
+        for (String sessionId : idleSessions) {
+            moved += archive(sessionId);
+        }
+        if (moved > 0) {
+            log.info("Archived {} messages of {} idle sessions", moved, idleSessions.size());
+        }
+        return moved;
+    }
+
+    /**
+     * Move a session's messages to the segment store. Only the messages that
+     * were copied are deleted, so one arriving meanwhile stays in the database.
+     */
+    private int archive(String sessionId) {
+        List<ChatMessage> messages = chatMessageRepository.findBySessionIdOrderByTimestampAsc(sessionId).stream()
+                .sorted(Comparator.comparing(ChatMessage::getId))
+                .toList();
+        if (messages.isEmpty()) {
+            return 0;
+        }
+        segmentStore.append(sessionId, messages);
+        chatMessageRepository.deleteAllByIdInBatch(messages.stream().map(ChatMessage::getId).toList());
+        chatHistoryCache.invalidate(sessionId);
+        return messages.size();
+    }
+
+    /**
+     * An in-memory database restarts its ID sequence; move it past every
+     * archived ID so new messages never collide with archived ones
+     */
+    private void advanceIdSequence() {
+        long archivedMax = segmentStore.maxMessageId();
+        if (archivedMax == 0) {
+            return;
+        }
+        Long hotMax = jdbcTemplate.queryForObject("SELECT MAX(id) FROM chat_messages", Long.class);
+        long restartWith = Math.max(archivedMax, hotMax != null ? hotMax : 0) + SEQUENCE_HEADROOM;
+        jdbcTemplate.execute("ALTER SEQUENCE chat_messages_seq RESTART WITH " + restartWith);
+        log.info("Moved chat message ID sequence to {} past archived messages", restartWith);
+    }
+}
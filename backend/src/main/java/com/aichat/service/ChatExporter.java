@@ -0,0 +1,99 @@
+package com.aichat.service;
+
+import com.aichat.model.ChatMessage;
+import com.aichat.repository.ChatMessageRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Writes a user's messages as newline-delimited JSON straight from a
+ * forward-only database cursor. Each entity is detached once written, so
+ * the persistence context never grows, and the cursor only advances as
+ * fast as the client reads: a slow reader blocks the write, not the heap.
+ * Archived messages are older than the database's and are written first;
+ * finding them scans the archive a session at a time.
+ */
+@Component
+@Slf4j
+public class ChatExporter {
+
+    private static final int FLUSH_EVERY = 256;
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ChatExporter(ChatMessageRepository chatMessageRepository,
+                        EntityManager entityManager,
+                        ObjectMapper objectMapper,
+                        PlatformTransactionManager transactionManager) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Stream every message of a user, returning the number written. Archived
+     * messages come first, session by session and each session oldest first,
+     * then the database's oldest first.
+     */
+    public long exportUserMessages(String userId, OutputStream out) {
+        Long written = readOnlyTransaction.execute(status -> {
+            long[] count = new long[1];
+            // Newest archived ID per session, so a session being archived meanwhile is not written twice
+            Map<String, Long> archivedUpTo = new HashMap<>();
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                // The servlet owns the stream; closing the generator must not close it
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                chatMessageRepository.forEachArchived(message -> {
+                    if (userId.equals(message.getUserId())) {
+                        write(generator, message, ++count[0]);
+                        archivedUpTo.merge(message.getSessionId(), message.getId(), Math::max);
+                    }
+                });
+                try (Stream<ChatMessage> messages = chatMessageRepository.streamByUserId(userId)) {
+                    for (ChatMessage message : (Iterable<ChatMessage>) messages::iterator) {
+                        Long upTo = archivedUpTo.get(message.getSessionId());
+                        if (upTo == null || message.getId() > upTo) {
+                            write(generator, message, ++count[0]);
+                        }
+                        entityManager.detach(message);
+                    }
+                }
+                generator.flush();
+            } catch (IOException e) {
+                // Usually the client went away; the cursor is closed with the stream
+                throw new UncheckedIOException(e);
+            }
+            return count[0];
+        });
+        log.debug("Exported {} messages of user {}", written, userId);
+        return written != null ? written : 0;
+    }
+
+    private void write(JsonGenerator generator, ChatMessage message, long count) {
+        try {
+            objectMapper.writeValue(generator, message);
+            generator.writeRaw('\n');
+            if (count % FLUSH_EVERY == 0) {
+                generator.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
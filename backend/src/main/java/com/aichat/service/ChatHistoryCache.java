@@ -0,0 +1,231 @@
+package com.aichat.service;
+
+import com.aichat.config.ChatProperties;
+import com.aichat.model.ChatMessage;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Bounded in-memory cache of recent messages per session. Each session keeps
+ * a ring buffer of its newest messages; sessions are evicted least recently
+ * used first once the cache holds more than the configured number.
+ * Messages are added once they are in the database, so the cache never
+ * holds a message a load from the database could not see.
+ */
+@Component
+public class ChatHistoryCache {
+
+    private final ChatProperties.HistoryCache settings;
+    private final Map<String, SessionHistory> sessions;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ChatHistoryCache(ChatProperties chatProperties) {
+        this.settings = chatProperties.getHistoryCache();
+        int maxSessions = settings.getMaxSessions();
+        this.sessions = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SessionHistory> eldest) {
+                if (size() > maxSessions) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Full history of a session in ascending order, loading it on a miss.
+     * Sessions longer than the ring buffer are always read from the loader.
+     */
+    public List<ChatMessage> getHistory(String sessionId, Function<String, List<ChatMessage>> loader) {
+        if (!settings.isEnabled() || sessionId == null) {
+            return loader.apply(sessionId);
+        }
+
+        SessionHistory history = sessions.computeIfAbsent(sessionId, id -> new SessionHistory(settings.getMessagesPerSession()));
+        synchronized (history) {
+            if (history.loaded && history.complete) {
+                hits.increment();
+                return history.newest(history.size, false);
+            }
+            misses.increment();
+            List<ChatMessage> messages = loader.apply(sessionId);
+            history.fill(messages, true);
+            return messages;
+        }
+    }
+
+    /**
+     * Newest {@code limit} messages of a session in descending order
+     */
+    public List<ChatMessage> getRecent(String sessionId, int limit,
+                                       BiFunction<String, Integer, List<ChatMessage>> loader) {
+        if (!settings.isEnabled() || sessionId == null) {
+            return loader.apply(sessionId, limit);
+        }
+
+        SessionHistory history = sessions.computeIfAbsent(sessionId, id -> new SessionHistory(settings.getMessagesPerSession()));
+        synchronized (history) {
+            if (history.loaded && (history.complete || history.size >= limit)) {
+                hits.increment();
+                return history.newest(limit, true);
+            }
+            misses.increment();
+            List<ChatMessage> recent = loader.apply(sessionId, limit);
+            if (!history.loaded) {
+                List<ChatMessage> ascending = new ArrayList<>(recent);
+                Collections.reverse(ascending);
+                history.fill(ascending, recent.size() < limit);
+            }
+            return recent;
+        }
+    }
+
+    @EventListener
+    public void onMessageSaved(ChatMessageSavedEvent event) {
+        // Published after commit: a load that ran before the flush missed the message and gets it here
+        append(event.message());
+    }
+
+    /**
+     * Write a saved message through to its session, if cached
+     */
+    public void append(ChatMessage message) {
+        if (!settings.isEnabled() || message.getSessionId() == null) {
+            return;
+        }
+
+        SessionHistory history = sessions.get(message.getSessionId());
+        if (history == null) {
+            return;
+        }
+        synchronized (history) {
+            if (history.loaded && !history.contains(message)) {
+                history.add(message);
+            }
+        }
+    }
+
+    /**
+     * Drop a session from the cache
+     */
+    public void invalidate(String sessionId) {
+        SessionHistory history = sessions.remove(sessionId);
+        if (history != null) {
+            synchronized (history) {
+                history.clear();
+            }
+        }
+    }
+
+    /**
+     * Hit/miss statistics for sizing the cache
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", settings.isEnabled());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", total == 0 ? 0.0 : (double) hitCount / total);
+        stats.put("evictions", evictions.sum());
+        stats.put("sessions", sessions.size());
+        stats.put("maxSessions", settings.getMaxSessions());
+        stats.put("messagesPerSession", settings.getMessagesPerSession());
+        return stats;
+    }
+
+    /**
+     * Number of sessions currently cached
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Ring buffer of the newest messages of one session, guarded by its own monitor
+     */
+    private static final class SessionHistory {
+
+        private final ChatMessage[] buffer;
+        private int start;
+        private int size;
+        private boolean loaded;
+        /** Whether the buffer holds the whole session rather than just its tail */
+        private boolean complete;
+
+        SessionHistory(int capacity) {
+            this.buffer = new ChatMessage[Math.max(1, capacity)];
+        }
+
+        void fill(List<ChatMessage> ascending, boolean wholeSession) {
+            clear();
+            int skip = Math.max(0, ascending.size() - buffer.length);
+            for (int i = skip; i < ascending.size(); i++) {
+                buffer[size++] = ascending.get(i);
+            }
+            loaded = true;
+            complete = wholeSession && skip == 0;
+        }
+
+        void add(ChatMessage message) {
+            if (size < buffer.length) {
+                buffer[(start + size) % buffer.length] = message;
+                size++;
+            } else {
+                buffer[start] = message;
+                start = (start + 1) % buffer.length;
+                complete = false;
+            }
+        }
+
+        boolean contains(ChatMessage message) {
+            for (int i = 0; i < size; i++) {
+                ChatMessage cached = buffer[(start + i) % buffer.length];
+                if (cached == message || (message.getId() != null && message.getId().equals(cached.getId()))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        List<ChatMessage> newest(int limit, boolean descending) {
+            int count = Math.min(limit, size);
+            List<ChatMessage> result = new ArrayList<>(count);
+            for (int i = size - count; i < size; i++) {
+                result.add(buffer[(start + i) % buffer.length]);
+            }
+            if (descending) {
+                Collections.reverse(result);
+            }
+            return result;
+        }
+
+        void clear() {
+            Arrays.fill(buffer, null);
+            start = 0;
+            size = 0;
+            loaded = false;
+            complete = false;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.aichat.service;
+
+import com.aichat.model.ChatMessage;
+
+/**
+ * Published once a chat message is in the database and has its ID, so
+ * listeners can push or index it instead of having clients poll
+ */
+public record ChatMessageSavedEvent(ChatMessage message) {
+}
@@ -0,0 +1,258 @@
+package com.aichat.service;
+
+import com.aichat.config.ChatProperties;
+import com.aichat.model.ChatMessage;
+import com.aichat.repository.ChatMessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persists chat messages, either directly or through a write-behind queue
+ * that flushes to the database in JDBC batches by size or by time. A batch
+ * that fails to flush is retried; once its attempts are used up its
+ * messages are saved one by one, and those that still fail are dropped and
+ * counted. A {@link ChatMessageSavedEvent} is published once a message has
+ * its ID.
+ */
+@Service
+@Slf4j
+public class ChatMessageWriter {
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ChatProperties.WriteBehind settings;
+    private final BlockingQueue<PendingWrite> queue;
+
+    private final LongAdder flushFailures = new LongAdder();
+    private final LongAdder droppedMessages = new LongAdder();
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public ChatMessageWriter(ChatMessageRepository chatMessageRepository,
+                             PlatformTransactionManager transactionManager,
+                             ApplicationEventPublisher eventPublisher,
+                             ChatProperties chatProperties) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.settings = chatProperties.getPersistence().getWriteBehind();
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, settings.getQueueCapacity()));
+    }
+
+    @PostConstruct
+    void start() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::flushLoop, "chat-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Write-behind persistence enabled (batch size {}, flush interval {})",
+                settings.getBatchSize(), settings.getFlushInterval());
+    }
+
+    /**
+     * Flush everything still queued before the persistence context closes
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        flusher.join(settings.getFlushInterval().toMillis() + 30_000);
+        // Messages queued by writers that passed the running check just before it changed
+        List<PendingWrite> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        if (!leftover.isEmpty()) {
+            log.info("Flushing {} chat messages queued during shutdown", leftover.size());
+            flush(leftover);
+        }
+    }
+
+    /**
+     * Save a message. With write-behind enabled and {@code await-flush} off,
+     * the message is only queued: the returned message is the one passed in,
+     * its ID is null until the batch containing it is flushed, and a flush
+     * that finally fails is not reported to the caller. Such failures are
+     * counted in {@link #getFlushFailures()} and {@link #getDroppedMessages()};
+     * use {@link #write} or {@code await-flush} to learn the outcome.
+     */
+    public ChatMessage save(ChatMessage message) {
+        CompletableFuture<ChatMessage> persisted = write(message);
+        if (!running || settings.isAwaitFlush()) {
+            return persisted.join();
+        }
+        return message;
+    }
+
+    /**
+     * Save a message, completing the returned future once it is in the database
+     */
+    public CompletableFuture<ChatMessage> write(ChatMessage message) {
+        if (!running) {
+            return CompletableFuture.completedFuture(published(chatMessageRepository.save(message)));
+        }
+
+        if (message.getTimestamp() == null) {
+            message.setTimestamp(LocalDateTime.now());
+        }
+
+        PendingWrite pending = new PendingWrite(message, new CompletableFuture<>());
+        try {
+            if (!queue.offer(pending, settings.getOfferTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Chat message write queue is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing chat message", e);
+        }
+        if (!running && queue.remove(pending)) {
+            // Stopped while queueing, and stop() may already have drained the queue
+            pending.future().complete(published(chatMessageRepository.save(message)));
+        }
+        return pending.future();
+    }
+
+    /**
+     * Number of messages waiting to be flushed
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Flush attempts that failed, including those retried successfully
+     */
+    public long getFlushFailures() {
+        return flushFailures.sum();
+    }
+
+    /**
+     * Queued messages that could not be saved and were given up on
+     */
+    public long getDroppedMessages() {
+        return droppedMessages.sum();
+    }
+
+    private void flushLoop() {
+        int batchSize = Math.max(1, settings.getBatchSize());
+        long flushIntervalNanos = settings.getFlushInterval().toNanos();
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Fill the batch until it is full or the flush interval has elapsed
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Stop accepting new work but keep draining what is already queued
+                running = false;
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        List<ChatMessage> messages = new ArrayList<>(batch.size());
+        for (PendingWrite pending : batch) {
+            messages.add(pending.message());
+        }
+
+        int attempts = Math.max(1, settings.getMaxFlushAttempts());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> chatMessageRepository.saveAll(messages));
+                for (PendingWrite pending : batch) {
+                    pending.future().complete(published(pending.message()));
+                }
+                log.debug("Flushed {} chat messages", batch.size());
+                return;
+            } catch (RuntimeException e) {
+                flushFailures.increment();
+                // IDs assigned in the rolled back transaction were never stored
+                messages.forEach(message -> message.setId(null));
+                if (attempt >= attempts) {
+                    log.error("Failed to flush {} chat messages after {} attempts, saving them one by one",
+                            batch.size(), attempts, e);
+                    saveEach(batch);
+                    return;
+                }
+                log.warn("Failed to flush {} chat messages (attempt {} of {}): {}", batch.size(), attempt, attempts, e.toString());
+                backOff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Save a failed batch message by message, so one bad message does not
+     * take the others down with it
+     */
+    private void saveEach(List<PendingWrite> batch) {
+        for (PendingWrite pending : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> chatMessageRepository.save(pending.message()));
+                pending.future().complete(published(pending.message()));
+            } catch (RuntimeException e) {
+                pending.message().setId(null);
+                droppedMessages.increment();
+                log.error("Dropped chat message of session {}", pending.message().getSessionId(), e);
+                pending.future().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void backOff(int attempt) {
+        try {
+            Thread.sleep(settings.getFlushRetryBackoff().toMillis() * attempt);
+        } catch (InterruptedException e) {
+            // Keep retrying without waiting, then drain what is queued
+            running = false;
+        }
+    }
+
+    private ChatMessage published(ChatMessage message) {
+        eventPublisher.publishEvent(new ChatMessageSavedEvent(message));
+        return message;
+    }
+
+    private record PendingWrite(ChatMessage message, CompletableFuture<ChatMessage> future) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.aichat.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Micrometer meters for chat processing. Stage timers are registered once
+ * up front; gauges read existing counters only when scraped.
+ */
+@Component
+public class ChatMetrics {
+
+    public enum Stage {
+        SAVE_USER_MESSAGE, GENERATE_RESPONSE, SAVE_AI_MESSAGE
+    }
+
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+    private final Timer expirySweeps;
+    private final Counter expiredMessages;
+
+    public ChatMetrics(MeterRegistry registry, ChatHistoryCache chatHistoryCache, ChatMessageWriter chatMessageWriter) {
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder("chat.process.stage")
+                    .description("Time spent in each stage of processing a chat message")
+                    .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+
+        Gauge.builder("chat.sessions.active", chatHistoryCache, ChatHistoryCache::size)
+                .description("Recently active sessions held in the history cache")
+                .register(registry);
+        FunctionCounter.builder("chat.history.cache.requests", chatHistoryCache, ChatHistoryCache::hitCount)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("chat.history.cache.requests", chatHistoryCache, ChatHistoryCache::missCount)
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("chat.persistence.queue.depth", chatMessageWriter, ChatMessageWriter::getQueueDepth)
+                .description("Messages waiting for the write-behind flush")
+                .register(registry);
+        FunctionCounter.builder("chat.persistence.flush.failures", chatMessageWriter, ChatMessageWriter::getFlushFailures)
+                .description("Write-behind flush attempts that failed")
+                .register(registry);
+        FunctionCounter.builder("chat.persistence.dropped", chatMessageWriter, ChatMessageWriter::getDroppedMessages)
+                .description("Queued messages that could not be saved")
+                .register(registry);
+
+        expirySweeps = Timer.builder("chat.expiry.sweep")
+                .description("Duration of sweeps deleting sessions past their TTL")
+                .register(registry);
+        expiredMessages = Counter.builder("chat.expiry.messages")
+                .description("Messages deleted by TTL expiry")
+                .register(registry);
+    }
+
+    public Timer stage(Stage stage) {
+        return stageTimers.get(stage);
+    }
+
+    public void recordExpirySweep(long messagesDeleted, Duration took) {
+        expirySweeps.record(took);
+        expiredMessages.increment(messagesDeleted);
+    }
+}
@@ -0,0 +1,654 @@
+package com.aichat.service;
+
+import com.aichat.config.ChatProperties;
+import com.aichat.model.ChatMessage;
+import com.aichat.repository.ChatMessageRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over message content, ranked with BM25.
+ * Messages are added as they are saved and dropped when their session is
+ * cleared. Postings are primitive arrays in insertion order; deleted
+ * messages are tombstoned and purged once they outnumber live ones, which
+ * renumbers the live documents, sessions and users so nothing is kept for
+ * cleared sessions.
+ * Only IDs and scores are kept; callers load the messages themselves.
+ */
+@Component
+@Slf4j
+public class ChatSearchIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MAX_TERM_LENGTH = 64;
+    private static final int MAX_QUERY_TERMS = 16;
+    private static final int REBUILD_PAGE_SIZE = 1000;
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final ChatProperties.Search settings;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private final Map<String, Postings> terms = new HashMap<>();
+    private final Map<String, Integer> sessionCodes = new HashMap<>();
+    private final Map<String, Integer> userCodes = new HashMap<>();
+    private final List<String> sessionIds = new ArrayList<>();
+    private final Map<Integer, IntList> docsBySession = new HashMap<>();
+    private final Map<Integer, IntList> docsByUser = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private long[] messageIds = new long[1024];
+    private int[] sessions = new int[1024];
+    private int[] users = new int[1024];
+    private int[] lengths = new int[1024];
+    private int docCount;
+    private int liveDocs;
+    private long liveLength;
+    /** Deleted documents still referenced by postings */
+    private int tombstones;
+
+    public ChatSearchIndex(ChatMessageRepository chatMessageRepository, ChatProperties chatProperties) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.settings = chatProperties.getSearch();
+    }
+
+    /**
+     * Index the messages already in the database before traffic arrives
+     */
+    @PostConstruct
+    void rebuild() {
+        if (!settings.isEnabled() || !settings.isRebuildOnStartup()) {
+            return;
+        }
+        long start = System.nanoTime();
+        long afterId = 0;
+        int indexed = 0;
+        // Archived sessions are older than anything still in the database
+        int[] archived = new int[1];
+        chatMessageRepository.forEachArchived(message -> {
+            add(message);
+            archived[0]++;
+        });
+        indexed += archived[0];
+        List<ChatMessage> page;
+        do {
+            page = chatMessageRepository.findAllAfter(afterId, PageRequest.of(0, REBUILD_PAGE_SIZE));
+            for (ChatMessage message : page) {
+                add(message);
+                afterId = message.getId();
+            }
+            indexed += page.size();
+        } while (page.size() == REBUILD_PAGE_SIZE);
+        log.info("Indexed {} chat messages for search in {} ms", indexed, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @EventListener
+    public void onMessageSaved(ChatMessageSavedEvent event) {
+        // Runs on the saving thread, after the message has its ID
+        if (settings.isEnabled()) {
+            add(event.message());
+        }
+    }
+
+    /**
+     * Add a saved message to the index
+     */
+    public void add(ChatMessage message) {
+        if (message.getId() == null || message.getContent() == null) {
+            return;
+        }
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = tokenize(message.getContent(), term -> frequencies.merge(term, 1, Integer::sum));
+
+        lock.writeLock().lock();
+        try {
+            int doc = docCount++;
+            ensureCapacity(docCount);
+            messageIds[doc] = message.getId();
+            sessions[doc] = sessionCode(message.getSessionId());
+            users[doc] = code(userCodes, message.getUserId());
+            lengths[doc] = length;
+            docsBySession.computeIfAbsent(sessions[doc], code -> new IntList()).add(doc);
+            docsByUser.computeIfAbsent(users[doc], code -> new IntList()).add(doc);
+            liveDocs++;
+            liveLength += length;
+            frequencies.forEach((term, frequency) -> terms.computeIfAbsent(term, t -> new Postings()).add(doc, frequency));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drop every message of a session from the index
+     */
+    public void removeSession(String sessionId) {
+        lock.writeLock().lock();
+        try {
+            Integer session = sessionCodes.get(sessionId);
+            if (session == null) {
+                return;
+            }
+            IntList docs = docsBySession.remove(session);
+            if (docs != null) {
+                for (int i = 0; i < docs.size; i++) {
+                    int doc = docs.values[i];
+                    if (!deleted.get(doc)) {
+                        deleted.set(doc);
+                        tombstones++;
+                        liveDocs--;
+                        liveLength -= lengths[doc];
+                    }
+                }
+            }
+            if (tombstones > Math.max(settings.getPurgeThreshold(), liveDocs)) {
+                purge();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rank messages containing any of the query terms, optionally restricted
+     * to a session and/or user
+     */
+    public Result search(String query, String sessionId, String userId, int offset, int limit) {
+        Set<String> queryTerms = new LinkedHashSet<>();
+        tokenize(query, term -> {
+            if (queryTerms.size() < MAX_QUERY_TERMS) {
+                queryTerms.add(term);
+            }
+        });
+
+        lock.readLock().lock();
+        try {
+            List<Postings> postings = new ArrayList<>(queryTerms.size());
+            for (String term : queryTerms) {
+                Postings list = terms.get(term);
+                if (list != null) {
+                    postings.add(list);
+                }
+            }
+            int session = filterCode(sessionCodes, sessionId);
+            int user = filterCode(userCodes, userId);
+            if (postings.isEmpty() || session == -2 || user == -2 || liveDocs == 0) {
+                return new Result(List.of(), 0);
+            }
+
+            float averageLength = Math.max(1f, (float) liveLength / liveDocs);
+            float[] idf = new float[postings.size()];
+            for (int i = 0; i < idf.length; i++) {
+                int df = Math.min(postings.get(i).size, liveDocs);
+                idf[i] = (float) Math.log(1 + (liveDocs - df + 0.5) / (df + 0.5));
+            }
+
+            TopHits top = new TopHits(offset + limit);
+            IntList candidates = session >= 0 ? docsBySession.get(session) : user >= 0 ? docsByUser.get(user) : null;
+            long postingCount = postings.stream().mapToLong(list -> list.size).sum();
+            if (candidates != null && candidates.size < postingCount) {
+                scoreCandidates(candidates, postings, idf, averageLength, session, user, top);
+            } else if (session < 0 || candidates != null) {
+                scorePostings(postings, idf, averageLength, session, user, top);
+            }
+            return new Result(top.page(offset, messageIds, sessions, sessionIds), top.total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int maxPageSize() {
+        return settings.getMaxPageSize();
+    }
+
+    /**
+     * Live messages in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sessions in the index; cleared ones are forgotten at the next purge
+     */
+    public int sessionCount() {
+        lock.readLock().lock();
+        try {
+            return sessionIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Document at a time over a small candidate set, looking up term frequencies */
+    private void scoreCandidates(IntList candidates, List<Postings> postings, float[] idf, float averageLength,
+                                 int session, int user, TopHits top) {
+        for (int i = 0; i < candidates.size; i++) {
+            int doc = candidates.values[i];
+            if (!matches(doc, session, user)) {
+                continue;
+            }
+            float score = 0;
+            for (int t = 0; t < postings.size(); t++) {
+                int frequency = postings.get(t).frequency(doc);
+                if (frequency > 0) {
+                    score += bm25(idf[t], frequency, lengths[doc], averageLength);
+                }
+            }
+            if (score > 0) {
+                top.offer(doc, score);
+            }
+        }
+    }
+
+    /** Term at a time over the postings, accumulating scores per document */
+    private void scorePostings(List<Postings> postings, float[] idf, float averageLength,
+                               int session, int user, TopHits top) {
+        if (postings.size() == 1) {
+            Postings list = postings.get(0);
+            for (int i = 0; i < list.size; i++) {
+                int doc = list.docs[i];
+                if (matches(doc, session, user)) {
+                    top.offer(doc, bm25(idf[0], list.frequencies[i] & 0xFF, lengths[doc], averageLength));
+                }
+            }
+            return;
+        }
+
+        int expected = 0;
+        for (Postings list : postings) {
+            expected += list.size;
+        }
+        ScoreAccumulator scores = new ScoreAccumulator(expected);
+        for (int t = 0; t < postings.size(); t++) {
+            Postings list = postings.get(t);
+            for (int i = 0; i < list.size; i++) {
+                int doc = list.docs[i];
+                if (matches(doc, session, user)) {
+                    scores.add(doc, bm25(idf[t], list.frequencies[i] & 0xFF, lengths[doc], averageLength));
+                }
+            }
+        }
+        scores.forEach(top::offer);
+    }
+
+    private boolean matches(int doc, int session, int user) {
+        return !deleted.get(doc)
+                && (session < 0 || sessions[doc] == session)
+                && (user < 0 || users[doc] == user);
+    }
+
+    private static float bm25(float idf, int frequency, int length, float averageLength) {
+        return idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+    }
+
+    /**
+     * Renumber live documents from 0, keeping their order, and rewrite the
+     * postings and per-session and per-user lists without deleted ones
+     */
+    private void purge() {
+        int[] remap = new int[docCount];
+        int live = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (deleted.get(doc)) {
+                remap[doc] = -1;
+                continue;
+            }
+            remap[doc] = live;
+            messageIds[live] = messageIds[doc];
+            sessions[live] = sessions[doc];
+            users[live] = users[doc];
+            lengths[live] = lengths[doc];
+            live++;
+        }
+        Iterator<Postings> iterator = terms.values().iterator();
+        while (iterator.hasNext()) {
+            Postings list = iterator.next();
+            list.compact(remap);
+            if (list.size == 0) {
+                iterator.remove();
+            }
+        }
+        docsBySession.values().removeIf(docs -> docs.compact(remap) == 0);
+        docsByUser.values().removeIf(docs -> docs.compact(remap) == 0);
+        docCount = live;
+        deleted.clear();
+        tombstones = 0;
+        compactCodes();
+        int capacity = Math.max(1024, Integer.highestOneBit(Math.max(1, live)) << 1);
+        if (capacity < messageIds.length / 2) {
+            messageIds = Arrays.copyOf(messageIds, capacity);
+            sessions = Arrays.copyOf(sessions, capacity);
+            users = Arrays.copyOf(users, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        log.debug("Purged deleted messages from the search index ({} documents, {} sessions, {} terms)",
+                live, sessionIds.size(), terms.size());
+    }
+
+    /**
+     * Renumber the session and user codes still used by live documents and
+     * forget the rest, so cleared sessions and their users are not kept
+     */
+    private void compactCodes() {
+        int[] sessionRemap = new int[sessionIds.size()];
+        int[] userRemap = new int[userCodes.size()];
+        Arrays.fill(sessionRemap, -1);
+        Arrays.fill(userRemap, -1);
+        List<String> liveSessionIds = new ArrayList<>();
+        int liveUsers = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            int session = sessions[doc];
+            if (sessionRemap[session] < 0) {
+                sessionRemap[session] = liveSessionIds.size();
+                liveSessionIds.add(sessionIds.get(session));
+            }
+            sessions[doc] = sessionRemap[session];
+            int user = users[doc];
+            if (userRemap[user] < 0) {
+                userRemap[user] = liveUsers++;
+            }
+            users[doc] = userRemap[user];
+        }
+
+        sessionIds.clear();
+        sessionIds.addAll(liveSessionIds);
+        sessionCodes.clear();
+        for (int code = 0; code < sessionIds.size(); code++) {
+            sessionCodes.put(sessionIds.get(code), code);
+        }
+        userCodes.values().removeIf(code -> userRemap[code] < 0);
+        userCodes.replaceAll((userId, code) -> userRemap[code]);
+        recode(docsBySession, sessionRemap);
+        recode(docsByUser, userRemap);
+    }
+
+    private static void recode(Map<Integer, IntList> docsByCode, int[] remap) {
+        Map<Integer, IntList> recoded = new HashMap<>();
+        docsByCode.forEach((code, docs) -> {
+            if (remap[code] >= 0) {
+                recoded.put(remap[code], docs);
+            }
+        });
+        docsByCode.clear();
+        docsByCode.putAll(recoded);
+    }
+
+    /** -1 for no filter, -2 for a filter value that is not indexed */
+    private static int filterCode(Map<String, Integer> codes, String value) {
+        if (value == null || value.isBlank()) {
+            return -1;
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : -2;
+    }
+
+    private int sessionCode(String sessionId) {
+        String value = sessionId != null ? sessionId : "";
+        Integer code = sessionCodes.get(value);
+        if (code == null) {
+            code = sessionIds.size();
+            sessionCodes.put(value, code);
+            sessionIds.add(value);
+        }
+        return code;
+    }
+
+    private static int code(Map<String, Integer> codes, String value) {
+        return codes.computeIfAbsent(value != null ? value : "", v -> codes.size());
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > messageIds.length) {
+            int grown = Math.max(capacity, messageIds.length * 2);
+            messageIds = Arrays.copyOf(messageIds, grown);
+            sessions = Arrays.copyOf(sessions, grown);
+            users = Arrays.copyOf(users, grown);
+            lengths = Arrays.copyOf(lengths, grown);
+        }
+    }
+
+    /**
+     * Split text into lower-case runs of letters and digits, returning the token count
+     */
+    static int tokenize(String text, java.util.function.Consumer<String> consumer) {
+        int count = 0;
+        int length = text.length();
+        int i = 0;
+        StringBuilder token = new StringBuilder();
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            token.setLength(0);
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+                if (token.length() < MAX_TERM_LENGTH) {
+                    token.append(Character.toLowerCase(text.charAt(i)));
+                }
+                i++;
+            }
+            if (token.length() > 0) {
+                consumer.accept(token.toString());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Matching message IDs of the requested page, best first, and the total number of matches
+     */
+    public record Result(List<Hit> hits, long total) {
+    }
+
+    public record Hit(long messageId, String sessionId, float score) {
+    }
+
+    private static final class Postings {
+
+        private int[] docs = new int[4];
+        private byte[] frequencies = new byte[4];
+        private int size;
+
+        void add(int doc, int frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            // Saturates at 255; BM25 flattens high frequencies anyway
+            frequencies[size] = (byte) Math.min(frequency, 255);
+            size++;
+        }
+
+        /** Frequency of a term in a document; documents are in ascending order */
+        int frequency(int doc) {
+            int index = Arrays.binarySearch(docs, 0, size, doc);
+            return index >= 0 ? frequencies[index] & 0xFF : 0;
+        }
+
+        /** Drop deleted documents and renumber the rest; order is kept as remap is monotonic */
+        void compact(int[] remap) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = remap[docs[i]];
+                if (doc >= 0) {
+                    docs[kept] = doc;
+                    frequencies[kept] = frequencies[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            if (kept < docs.length / 4) {
+                docs = Arrays.copyOf(docs, Math.max(4, kept));
+                frequencies = Arrays.copyOf(frequencies, Math.max(4, kept));
+            }
+        }
+    }
+
+    private static final class IntList {
+
+        private int[] values = new int[8];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int compact(int[] remap) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int value = remap[values[i]];
+                if (value >= 0) {
+                    values[kept++] = value;
+                }
+            }
+            size = kept;
+            return size;
+        }
+    }
+
+    /**
+     * Open-addressing map from document to accumulated score
+     */
+    private static final class ScoreAccumulator {
+
+        private final int[] keys;
+        private final float[] values;
+        private final int mask;
+
+        ScoreAccumulator(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+            keys = new int[capacity];
+            values = new float[capacity];
+            mask = capacity - 1;
+        }
+
+        void add(int doc, float score) {
+            // Keys are stored as doc + 1 so that 0 marks an empty slot
+            int key = doc + 1;
+            int slot = (key * 0x9E3779B9) >>> 1 & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] += score;
+        }
+
+        void forEach(DocScoreConsumer consumer) {
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != 0) {
+                    consumer.accept(keys[slot] - 1, values[slot]);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface DocScoreConsumer {
+        void accept(int doc, float score);
+    }
+
+    /**
+     * Bounded min-heap of the best hits, counting every offered hit.
+     * Ties go to the newer message.
+     */
+    private static final class TopHits {
+
+        private final int capacity;
+        private final int[] docs;
+        private final float[] scores;
+        private int size;
+        private long total;
+
+        TopHits(int capacity) {
+            this.capacity = Math.max(1, capacity);
+            this.docs = new int[this.capacity];
+            this.scores = new float[this.capacity];
+        }
+
+        void offer(int doc, float score) {
+            total++;
+            if (size < capacity) {
+                docs[size] = doc;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (better(doc, score, docs[0], scores[0])) {
+                docs[0] = doc;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        List<Hit> page(int offset, long[] messageIds, int[] sessions, List<String> sessionIds) {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> better(docs[a], scores[a], docs[b], scores[b]) ? -1
+                    : better(docs[b], scores[b], docs[a], scores[a]) ? 1 : 0);
+            List<Hit> hits = new ArrayList<>(Math.max(0, size - offset));
+            for (int i = offset; i < size; i++) {
+                int doc = docs[order[i]];
+                hits.add(new Hit(messageIds[doc], sessionIds.get(sessions[doc]), scores[order[i]]));
+            }
+            return hits;
+        }
+
+        private static boolean better(int doc, float score, int otherDoc, float otherScore) {
+            return score > otherScore || (score == otherScore && doc > otherDoc);
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (!better(docs[parent], scores[parent], docs[index], scores[index])) {
+                    break;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int left = 2 * index + 1;
+                int smallest = index;
+                if (left < size && better(docs[smallest], scores[smallest], docs[left], scores[left])) {
+                    smallest = left;
+                }
+                int right = left + 1;
+                if (right < size && better(docs[smallest], scores[smallest], docs[right], scores[right])) {
+                    smallest = right;
+                }
+                if (smallest == index) {
+                    return;
+                }
+                swap(index, smallest);
+                index = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int doc = docs[a];
+            docs[a] = docs[b];
+            docs[b] = doc;
+            float score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+}
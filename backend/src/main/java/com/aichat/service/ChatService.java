@@ -1,15 +1,24 @@
 package com.aichat.service;
 
+import com.aichat.model.ChatHistoryPage;
 import com.aichat.model.ChatMessage;
 import com.aichat.model.ChatRequest;
 import com.aichat.model.ChatResponse;
+import com.aichat.model.ChatSearchPage;
+import com.aichat.model.ChatStreamEvent;
+import com.aichat.model.McpToolInvocation;
+import com.aichat.model.ToolExecutionResult;
 import com.aichat.repository.ChatMessageRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
 
 /**
  * Service for handling chat operations and AI responses
@@ -20,119 +29,459 @@ import java.util.concurrent.CompletableFuture;
 public class ChatService {
     
     private final ChatMessageRepository chatMessageRepository;
+    private final ChatMessageWriter chatMessageWriter;
+    private final ChatHistoryCache chatHistoryCache;
+    private final ChatSearchIndex chatSearchIndex;
+    private final ContextAssembler contextAssembler;
     private final McpService mcpService;
+    private final ResponseRuleEngine responseRuleEngine;
+    private final Scheduler blockingScheduler;
+    private final ChatMetrics chatMetrics;
+    
+    private static final int MAX_HISTORY_PAGE_SIZE = 200;
+    private static final int MAX_SEARCH_WINDOW = 10000;
+    /** Matches maxLength of the web_search query in mcp-tools.json */
+    private static final int MAX_SEARCH_QUERY_LENGTH = 2048;
+    private static final Pattern CHUNK_BOUNDARY = Pattern.compile("(?<=\\s)(?=\\S)");
     
     /**
      * Process a chat message and generate AI response
      */
     public Mono<ChatResponse> processMessage(ChatRequest request) {
-        return Mono.fromCallable(() -> {
-            // Save user message
-            ChatMessage userMessage = new ChatMessage();
-            userMessage.setContent(request.getMessage());
-            userMessage.setType(ChatMessage.MessageType.USER);
-            userMessage.setSessionId(request.getSessionId());
-            userMessage.setUserId(request.getUserId());
-            chatMessageRepository.save(userMessage);
-            
-            // Generate AI response
-            String aiResponse = generateAiResponse(request);
+        return Mono.fromCallable(() -> saveUserMessage(request))
+            .subscribeOn(blockingScheduler)
+            // Run the requested tools concurrently, keeping results in request order
+            .then(executeTools(request).collectList())
+            .publishOn(blockingScheduler)
+            .map(toolResults -> {
+                // Generate AI response from the session's context window
+                ConversationContext context = contextAssembler.assemble(request.getSessionId());
+                String aiResponse = chatMetrics.stage(ChatMetrics.Stage.GENERATE_RESPONSE)
+                    .record(() -> generateAiResponse(request, toolResults, context));
+                
+                // Save AI response and create response
+                ChatMessage aiMessage = saveAiMessage(request, aiResponse);
+                ChatResponse response = buildResponse(request, aiMessage, aiResponse);
+                if (!toolResults.isEmpty()) {
+                    response.setToolResults(toolResults);
+                }
+                response.setContext(context.describe());
+                return response;
+            });
+    }
+    
+    /**
+     * Process a chat message and stream the AI response as it is produced.
+     * The AI message is persisted once the stream completes; a cancelled
+     * stream leaves only the user message behind.
+     */
+    public Flux<ChatStreamEvent> streamMessage(ChatRequest request) {
+        return Flux.defer(() -> {
+            String sessionId = request.getSessionId();
+            StringBuilder aiResponse = new StringBuilder();
+            List<ToolExecutionResult> toolResults = new ArrayList<>();
             
-            // Save AI response
-            ChatMessage aiMessage = new ChatMessage();
-            aiMessage.setContent(aiResponse);
-            aiMessage.setType(ChatMessage.MessageType.AI);
-            aiMessage.setSessionId(request.getSessionId());
-            aiMessage.setUserId(request.getUserId());
-            aiMessage.setAiResponse(aiResponse);
+            // Tool results are streamed in completion order
+            Flux<ChatStreamEvent> toolEvents = !usesMcpTools(request) ? Flux.empty() : Flux.concat(
+                textChunks(sessionId, toolPlan(request.getMcpTools())),
+                Flux.fromArray(request.getMcpTools()).map(tool -> ChatStreamEvent.tool(sessionId, tool, "started")),
+                textChunks(sessionId, "Tool execution results:\n"),
+                executeTools(request, false).concatMap(result -> {
+                    toolResults.add(result);
+                    return Flux.concat(
+                        Mono.just(ChatStreamEvent.tool(sessionId, result.getTool(), result.getStatus().name().toLowerCase())),
+                        textChunks(sessionId, toolResultLine(result))
+                    );
+                })
+            );
             
-            // If MCP tools were used, record them
-            if (request.isUseMcp() && request.getMcpTools() != null) {
-                aiMessage.setMcpToolsUsed(String.join(",", request.getMcpTools()));
+            // The context includes the user message, so it is assembled once that is saved
+            return Mono.fromCallable(() -> {
+                    saveUserMessage(request);
+                    return contextAssembler.assemble(sessionId);
+                })
+                .flatMapMany(context -> Flux.concat(
+                        textChunks(sessionId, introduction(request)),
+                        toolEvents,
+                        Flux.defer(() -> textChunks(sessionId, contextualReply(request.getMessage(), context)))
+                    )
+                    .doOnNext(event -> {
+                        if (event.getType() == ChatStreamEvent.EventType.CHUNK) {
+                            aiResponse.append(event.getContent());
+                        }
+                    })
+                    .concatWith(Mono.fromCallable(() -> {
+                        String completed = aiResponse.toString();
+                        ChatMessage aiMessage = saveAiMessage(request, completed);
+                        ChatResponse response = buildResponse(request, aiMessage, completed);
+                        if (!toolResults.isEmpty()) {
+                            response.setToolResults(toolResults);
+                        }
+                        response.setContext(context.describe());
+                        return ChatStreamEvent.done(response);
+                    }).subscribeOn(blockingScheduler)))
+                .doOnCancel(() -> log.debug("Stream cancelled by client for session: {}", sessionId))
+                .onErrorResume(error -> {
+                    log.error("Error streaming chat message", error);
+                    return Mono.just(ChatStreamEvent.error(sessionId, "Error processing message: " + error.getMessage()));
+                });
+        }).subscribeOn(blockingScheduler);
+    }
+    
+    private Flux<ToolExecutionResult> executeTools(ChatRequest request) {
+        return executeTools(request, true);
+    }
+    
+    /**
+     * Execute all requested tools concurrently, each with its own deadline.
+     * A failed or timed-out tool yields a result instead of failing the turn.
+     */
+    private Flux<ToolExecutionResult> executeTools(ChatRequest request, boolean requestOrder) {
+        if (!usesMcpTools(request) || request.getMcpTools().length == 0) {
+            return Flux.empty();
+        }
+        
+        String[] tools = request.getMcpTools();
+        Flux<String> toolNames = Flux.fromArray(tools);
+        return requestOrder
+            ? toolNames.flatMapSequential(tool -> executeTool(request, tool), tools.length)
+            : toolNames.flatMap(tool -> executeTool(request, tool), tools.length);
+    }
+    
+    /**
+     * A tool that needs parameters the turn did not give is skipped rather
+     * than called only to fail validation
+     */
+    private Mono<ToolExecutionResult> executeTool(ChatRequest request, String tool) {
+        Map<String, Object> parameters = toolParameters(request, tool);
+        if (parameters.isEmpty() && mcpService.requiresParameters(tool)) {
+            return Mono.just(ToolExecutionResult.skipped(tool, "No parameters in the request context under '" + tool + "'"));
+        }
+        return mcpService.executeWithDeadline(tool, parameters);
+    }
+    
+    /**
+     * Tool parameters come from the request context, keyed by tool name.
+     * Web search falls back to searching for the message itself, cut to the
+     * longest query the tool accepts.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> toolParameters(ChatRequest request, String tool) {
+        if (request.getContext() != null && request.getContext().get(tool) instanceof Map<?, ?> parameters) {
+            return (Map<String, Object>) parameters;
+        }
+        if ("web_search".equals(tool) && request.getMessage() != null) {
+            String query = request.getMessage().strip();
+            if (query.length() > MAX_SEARCH_QUERY_LENGTH) {
+                int end = query.lastIndexOf(' ', MAX_SEARCH_QUERY_LENGTH);
+                query = query.substring(0, end > 0 ? end : MAX_SEARCH_QUERY_LENGTH);
             }
-            
-            chatMessageRepository.save(aiMessage);
-            
-            // Create response
-            ChatResponse response = new ChatResponse(request.getMessage(), aiResponse);
+            return Map.of("query", query);
+        }
+        return Map.of();
+    }
+    
+    private ChatMessage saveUserMessage(ChatRequest request) {
+        ChatMessage userMessage = new ChatMessage();
+        userMessage.setContent(request.getMessage());
+        userMessage.setType(ChatMessage.MessageType.USER);
+        userMessage.setSessionId(request.getSessionId());
+        userMessage.setUserId(request.getUserId());
+        return chatMetrics.stage(ChatMetrics.Stage.SAVE_USER_MESSAGE).record(() -> persist(userMessage));
+    }
+    
+    private ChatMessage saveAiMessage(ChatRequest request, String aiResponse) {
+        ChatMessage aiMessage = new ChatMessage();
+        aiMessage.setContent(aiResponse);
+        aiMessage.setType(ChatMessage.MessageType.AI);
+        aiMessage.setSessionId(request.getSessionId());
+        aiMessage.setUserId(request.getUserId());
+        
+        // If MCP tools were used, record them
+        if (usesMcpTools(request)) {
+            aiMessage.setMcpToolsUsed(String.join(",", request.getMcpTools()));
+        }
+        
+        return chatMetrics.stage(ChatMetrics.Stage.SAVE_AI_MESSAGE).record(() -> persist(aiMessage));
+    }
+    
+    private ChatMessage persist(ChatMessage message) {
+        ChatMessage saved = chatMessageWriter.save(message);
+        contextAssembler.append(saved);
+        return saved;
+    }
+    
+    private ChatResponse buildResponse(ChatRequest request, ChatMessage aiMessage, String aiResponse) {
+        ChatResponse response = new ChatResponse(request.getMessage(), aiResponse);
+        // Write-behind persistence may not have assigned an ID yet
+        if (aiMessage.getId() != null) {
             response.setId(aiMessage.getId().toString());
-            response.setSessionId(request.getSessionId());
-            
-            if (request.isUseMcp() && request.getMcpTools() != null) {
-                response.setMcpToolsUsed(Arrays.asList(request.getMcpTools()));
-            }
-            
-            return response;
-        });
+        }
+        response.setSessionId(request.getSessionId());
+        
+        if (usesMcpTools(request)) {
+            response.setMcpToolsUsed(Arrays.asList(request.getMcpTools()));
+        }
+        
+        return response;
     }
     
     /**
-     * Generate AI response with optional MCP tool usage
+     * Generate AI response with optional MCP tool usage. The context holds the
+     * conversation so far, ending with this request's message, within a fixed
+     * token budget; a model-backed generator would send {@link ConversationContext#render()}.
+     * Here a follow-up that matches no reply rule is answered from the topic
+     * of the recent turns.
      */
-    private String generateAiResponse(ChatRequest request) {
+    String generateAiResponse(ChatRequest request, List<ToolExecutionResult> toolResults, ConversationContext context) {
         StringBuilder response = new StringBuilder();
         
         // Basic AI response generation
-        response.append("I understand you said: \"").append(request.getMessage()).append("\"\n\n");
+        response.append(introduction(request));
         
-        // If MCP tools are requested, use them
-        if (request.isUseMcp() && request.getMcpTools() != null) {
-            response.append("I'll use the following tools to help you:\n");
-            for (String tool : request.getMcpTools()) {
-                response.append("- ").append(tool).append("\n");
-            }
-            response.append("\n");
+        // If MCP tools were requested, report their results
+        if (usesMcpTools(request)) {
+            response.append(toolPlan(request.getMcpTools()));
             
-            // Simulate tool usage
             response.append("Tool execution results:\n");
-            for (String tool : request.getMcpTools()) {
-                response.append("• ").append(tool).append(": Operation completed successfully\n");
+            for (ToolExecutionResult result : toolResults) {
+                response.append(toolResultLine(result));
             }
         }
         
         // Add some contextual response based on the message
-        String message = request.getMessage().toLowerCase();
-        if (message.contains("hello") || message.contains("hi")) {
-            response.append("Hello! How can I assist you today?");
-        } else if (message.contains("help")) {
-            response.append("I'm here to help! You can ask me questions, request file operations, web searches, or code execution through MCP tools.");
-        } else if (message.contains("file") || message.contains("read") || message.contains("write")) {
-            response.append("I can help you with file operations. Would you like me to read, write, or list files?");
-        } else if (message.contains("search") || message.contains("web")) {
-            response.append("I can search the web for current information. What would you like me to search for?");
-        } else if (message.contains("code") || message.contains("execute")) {
-            response.append("I can execute code in various programming languages. What code would you like me to run?");
-        } else {
-            response.append("Thank you for your message. I'm here to help with various tasks including file operations, web searches, and code execution.");
-        }
+        response.append(contextualReply(request.getMessage(), context));
         
         return response.toString();
     }
     
+    private boolean usesMcpTools(ChatRequest request) {
+        return request.isUseMcp() && request.getMcpTools() != null;
+    }
+    
+    private String introduction(ChatRequest request) {
+        return "I understand you said: \"" + request.getMessage() + "\"\n\n";
+    }
+    
+    private String toolPlan(String[] tools) {
+        StringBuilder plan = new StringBuilder("I'll use the following tools to help you:\n");
+        for (String tool : tools) {
+            plan.append("- ").append(tool).append("\n");
+        }
+        return plan.append("\n").toString();
+    }
+    
+    private String toolResultLine(ToolExecutionResult result) {
+        return switch (result.getStatus()) {
+            case SUCCESS -> "• " + result.getTool() + ": Operation completed successfully\n";
+            case TIMEOUT -> "• " + result.getTool() + ": Timed out after " + result.getDurationMs() + "ms\n";
+            case FAILED -> "• " + result.getTool() + ": Failed - " + result.getError() + "\n";
+            case SKIPPED -> "• " + result.getTool() + ": Skipped - " + result.getError() + "\n";
+        };
+    }
+    
+    /**
+     * The reply rule matching the message, else the one matching the newest
+     * earlier user turn in the window that has one, else the default reply
+     */
+    private String contextualReply(String text, ConversationContext context) {
+        String reply = responseRuleEngine.matchingReply(text);
+        List<ConversationContext.Turn> turns = context.turns();
+        for (int i = turns.size() - 1; reply == null && i >= 0; i--) {
+            ConversationContext.Turn turn = turns.get(i);
+            if (turn.type() == ChatMessage.MessageType.USER) {
+                reply = responseRuleEngine.matchingReply(turn.text());
+            }
+        }
+        return reply != null ? reply : responseRuleEngine.reply(text);
+    }
+    
+    /**
+     * Split text into word-sized chunks, keeping the trailing whitespace
+     * with each word so the chunks concatenate back to the original text
+     */
+    private Flux<ChatStreamEvent> textChunks(String sessionId, String text) {
+        return Flux.fromArray(CHUNK_BOUNDARY.split(text))
+                .filter(chunk -> !chunk.isEmpty())
+                .map(chunk -> ChatStreamEvent.chunk(sessionId, chunk));
+    }
+    
     /**
      * Get chat history for a session
      */
     public List<ChatMessage> getChatHistory(String sessionId) {
-        return chatMessageRepository.findBySessionIdOrderByTimestampAsc(sessionId);
+        return chatHistoryCache.getHistory(sessionId, chatMessageRepository::findSessionHistory);
+    }
+    
+    /**
+     * Get one page of chat history using keyset pagination. Without a cursor
+     * the newest page is returned; {@code before} walks towards older
+     * messages and {@code after} fetches messages newer than a previous page.
+     */
+    public ChatHistoryPage getHistoryPage(String sessionId, String before, String after, int size) {
+        if (before != null && after != null) {
+            throw new IllegalArgumentException("Only one of 'before' and 'after' may be given");
+        }
+        
+        int pageSize = Math.max(1, Math.min(size, MAX_HISTORY_PAGE_SIZE));
+        // Fetch one extra row to learn whether another page follows
+        int probe = pageSize + 1;
+        
+        if (after != null) {
+            List<ChatMessage> messages = chatMessageRepository.findSessionPageAfter(sessionId, decodeCursor(after), probe);
+            boolean hasMore = messages.size() > pageSize;
+            if (hasMore) {
+                messages = messages.subList(0, pageSize);
+            }
+            if (messages.isEmpty()) {
+                return new ChatHistoryPage(messages, null, after, false);
+            }
+            return new ChatHistoryPage(
+                messages,
+                encodeCursor(messages.get(0).getId()),
+                encodeCursor(messages.get(messages.size() - 1).getId()),
+                hasMore
+            );
+        }
+        
+        List<ChatMessage> newestFirst = chatMessageRepository.findSessionPageBefore(
+            sessionId, before != null ? decodeCursor(before) : null, probe);
+        boolean hasMore = newestFirst.size() > pageSize;
+        List<ChatMessage> messages = new ArrayList<>(newestFirst.subList(0, Math.min(pageSize, newestFirst.size())));
+        Collections.reverse(messages);
+        
+        if (messages.isEmpty()) {
+            return new ChatHistoryPage(messages, null, before == null ? encodeCursor(0L) : null, false);
+        }
+        return new ChatHistoryPage(
+            messages,
+            hasMore ? encodeCursor(messages.get(0).getId()) : null,
+            encodeCursor(messages.get(messages.size() - 1).getId()),
+            hasMore
+        );
+    }
+    
+    private static String encodeCursor(Long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+    
+    private static Long decodeCursor(String cursor) {
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid history cursor: " + cursor);
+        }
     }
     
     /**
      * Clear chat history for a session
      */
     public void clearChatHistory(String sessionId) {
-        chatMessageRepository.deleteBySessionId(sessionId);
+        deleteSessions(List.of(sessionId));
+    }
+    
+    /**
+     * Delete sessions from both storage tiers and every in-memory view of
+     * them. The database rows go in one statement; returns the rows removed.
+     */
+    public int deleteSessions(Collection<String> sessionIds) {
+        int deleted = chatMessageRepository.deleteBySessionIdIn(sessionIds);
+        for (String sessionId : sessionIds) {
+            chatHistoryCache.invalidate(sessionId);
+            contextAssembler.invalidate(sessionId);
+            chatMessageRepository.deleteArchivedSession(sessionId);
+            chatSearchIndex.removeSession(sessionId);
+        }
+        return deleted;
+    }
+    
+    /**
+     * Expire sessions found idle since before the cutoff. Only messages older
+     * than the cutoff are deleted, so a session that received a message since
+     * it was found idle keeps that message and stays searchable. Returns the
+     * messages removed from both tiers.
+     */
+    public int expireSessions(Collection<String> sessionIds, java.time.LocalDateTime cutoff) {
+        int deleted = chatMessageRepository.deleteBySessionIdInBefore(sessionIds, cutoff);
+        Set<String> revived = new HashSet<>(chatMessageRepository.findActiveSessionIds(sessionIds, cutoff));
+        for (String sessionId : sessionIds) {
+            chatHistoryCache.invalidate(sessionId);
+            contextAssembler.invalidate(sessionId);
+            deleted += chatMessageRepository.deleteArchivedSession(sessionId);
+            chatSearchIndex.removeSession(sessionId);
+            if (revived.contains(sessionId)) {
+                chatMessageRepository.findBySessionIdOrderByTimestampAsc(sessionId).forEach(chatSearchIndex::add);
+            }
+        }
+        return deleted;
+    }
+    
+    /**
+     * Search message content across sessions, optionally filtered by session
+     * and user. Results are ranked by relevance, newer messages first on ties.
+     */
+    public ChatSearchPage search(String query, String sessionId, String userId, int page, int size) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Query must not be blank");
+        }
+        int pageSize = Math.max(1, Math.min(size, chatSearchIndex.maxPageSize()));
+        int pageNumber = Math.max(0, page);
+        if ((long) pageNumber * pageSize + pageSize > MAX_SEARCH_WINDOW) {
+            throw new IllegalArgumentException("Results beyond the first " + MAX_SEARCH_WINDOW + " are not available");
+        }
+        
+        long start = System.nanoTime();
+        ChatSearchIndex.Result result = chatSearchIndex.search(query, sessionId, userId, pageNumber * pageSize, pageSize);
+        
+        // Load the page in one query and restore rank order
+        List<Long> ids = result.hits().stream().map(ChatSearchIndex.Hit::messageId).toList();
+        Map<Long, ChatMessage> messages = new HashMap<>();
+        chatMessageRepository.findAllById(ids).forEach(message -> messages.put(message.getId(), message));
+        if (messages.size() < ids.size()) {
+            // The rest were moved to the archive tier
+            Map<String, List<Long>> archivedIds = new HashMap<>();
+            for (ChatSearchIndex.Hit hit : result.hits()) {
+                if (!messages.containsKey(hit.messageId())) {
+                    archivedIds.computeIfAbsent(hit.sessionId(), id -> new ArrayList<>()).add(hit.messageId());
+                }
+            }
+            archivedIds.forEach((archivedSessionId, messageIds) -> chatMessageRepository.findInSession(archivedSessionId, messageIds)
+                .forEach(message -> messages.put(message.getId(), message)));
+        }
+        List<ChatSearchPage.Hit> hits = new ArrayList<>(ids.size());
+        for (ChatSearchIndex.Hit hit : result.hits()) {
+            ChatMessage message = messages.get(hit.messageId());
+            if (message != null) {
+                hits.add(new ChatSearchPage.Hit(message, hit.score()));
+            }
+        }
+        
+        return new ChatSearchPage(
+            hits,
+            result.total(),
+            pageNumber,
+            pageSize,
+            (long) (pageNumber + 1) * pageSize < result.total(),
+            (System.nanoTime() - start) / 1_000_000
+        );
     }
     
     /**
      * Get recent messages for a session
      */
     public List<ChatMessage> getRecentMessages(String sessionId, int limit) {
-        return chatMessageRepository.findRecentBySessionId(
-            sessionId, 
-            org.springframework.data.domain.PageRequest.of(0, limit)
+        return chatHistoryCache.getRecent(sessionId, limit, (id, size) ->
+            chatMessageRepository.findSessionPageBefore(id, null, size)
         );
     }
     
+    /**
+     * Get history cache statistics
+     */
+    public Map<String, Object> getHistoryCacheStats() {
+        return chatHistoryCache.getStats();
+    }
+    
     /**
      * Get available MCP tools
      */
@@ -140,10 +489,60 @@ public class ChatService {
         return mcpService.getAvailableTools();
     }
     
+    /**
+     * Get an MCP tool by name, or null when there is none
+     */
+    public com.aichat.model.McpTool getMcpTool(String toolName) {
+        return mcpService.getTool(toolName);
+    }
+    
+    /**
+     * Last known availability of the remote MCP server
+     */
+    public boolean isMcpServerAvailable() {
+        return Boolean.TRUE.equals(mcpService.isMcpServerAvailable().block());
+    }
+    
+    /**
+     * Execute a batch of MCP tool invocations with bounded parallelism
+     */
+    public Flux<ToolExecutionResult> executeMcpBatch(List<McpToolInvocation> invocations, Integer parallelism, boolean ordered) {
+        com.aichat.config.McpProperties.Batch limits = mcpService.getBatchSettings();
+        if (invocations.size() > limits.getMaxInvocations()) {
+            return Flux.error(new IllegalArgumentException(
+                "Batch has " + invocations.size() + " invocations, more than the limit of " + limits.getMaxInvocations()));
+        }
+        int effectiveParallelism = parallelism == null
+            ? limits.getMaxParallelism()
+            : Math.max(1, Math.min(parallelism, limits.getMaxParallelism()));
+        return mcpService.executeBatch(invocations, effectiveParallelism, ordered);
+    }
+    
+    /**
+     * Resolve a file under the filesystem tool root for streaming
+     */
+    public java.nio.file.Path resolveMcpFile(String path) {
+        return mcpService.resolveStreamableFile(path);
+    }
+    
+    /**
+     * Get MCP tool result cache statistics
+     */
+    public Map<String, Object> getMcpCacheStats() {
+        return mcpService.getCacheStats();
+    }
+    
     /**
      * Execute an MCP tool
      */
     public Mono<Object> executeMcpTool(String toolName, Map<String, Object> parameters) {
         return mcpService.executeTool(toolName, parameters);
     }
+    
+    /**
+     * Stream the rows of a database tool query in chunks
+     */
+    public Flux<com.aichat.model.QueryResultChunk> streamDatabaseQuery(Map<String, Object> parameters) {
+        return mcpService.streamDatabaseQuery(parameters);
+    }
 }
@@ -0,0 +1,192 @@
+package com.aichat.service;
+
+import com.aichat.config.ChatProperties;
+import com.aichat.model.ChatMessage;
+import com.aichat.repository.ChatMessageRepository;
+import org.springframework.stereotype.Component;
+import java.util.*;
+
+/**
+ * Keeps a per-session context window for reply generation. Recent turns are
+ * held verbatim up to a token budget; turns pushed out of the window are
+ * folded into a condensed summary (opening message and most frequent terms)
+ * as they leave. Each new message costs the same however long the
+ * conversation is. A session is seeded from its newest messages the first
+ * time it is seen.
+ */
+@Component
+public class ContextAssembler {
+
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int OPENING_CHARS = 200;
+    private static final Set<String> STOP_WORDS = Set.of(
+            "the", "and", "for", "are", "but", "not", "you", "your", "all", "can", "had", "her", "was", "one",
+            "our", "out", "has", "have", "his", "how", "its", "may", "new", "now", "see", "who", "did", "get",
+            "let", "say", "she", "too", "use", "that", "this", "with", "what", "from", "they", "will", "would",
+            "there", "their", "about", "which", "when", "been", "were", "then", "them", "these", "some", "could",
+            "into", "than", "just", "like", "also", "please", "thank", "thanks", "hello", "help");
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final ChatProperties.Context settings;
+    private final Map<String, SessionContext> sessions;
+
+    public ContextAssembler(ChatMessageRepository chatMessageRepository, ChatProperties chatProperties) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.settings = chatProperties.getContext();
+        int maxSessions = settings.getMaxSessions();
+        this.sessions = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SessionContext> eldest) {
+                return size() > maxSessions;
+            }
+        });
+    }
+
+    /**
+     * Add a newly saved message to its session's window
+     */
+    public void append(ChatMessage message) {
+        if (!settings.isEnabled() || message.getSessionId() == null) {
+            return;
+        }
+        SessionContext context = session(message.getSessionId());
+        synchronized (context) {
+            context.add(message);
+        }
+    }
+
+    /**
+     * The current context of a session
+     */
+    public ConversationContext assemble(String sessionId) {
+        if (!settings.isEnabled() || sessionId == null) {
+            return ConversationContext.EMPTY;
+        }
+        SessionContext context = session(sessionId);
+        synchronized (context) {
+            return context.snapshot();
+        }
+    }
+
+    /**
+     * Forget a session, e.g. after its history was cleared
+     */
+    public void invalidate(String sessionId) {
+        if (sessionId != null) {
+            sessions.remove(sessionId);
+        }
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private SessionContext session(String sessionId) {
+        SessionContext context = sessions.get(sessionId);
+        if (context != null) {
+            return context;
+        }
+        // Seed outside the map lock; a concurrent seed of the same session wins or loses whole
+        SessionContext seeded = new SessionContext();
+        List<ChatMessage> newestFirst = chatMessageRepository.findSessionPageBefore(sessionId, null, settings.getMaxTurns());
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            seeded.add(newestFirst.get(i));
+        }
+        SessionContext existing = sessions.putIfAbsent(sessionId, seeded);
+        return existing != null ? existing : seeded;
+    }
+
+    static int estimateTokens(String text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    private final class SessionContext {
+
+        private final ArrayDeque<ConversationContext.Turn> window = new ArrayDeque<>();
+        private final Map<String, Integer> termCounts = new HashMap<>();
+        private int windowTokens;
+        private long lastMessageId;
+        private String opening;
+        private int condensedTurns;
+        private String summary = "";
+        private boolean summaryStale;
+
+        void add(ChatMessage message) {
+            if (message.getId() != null) {
+                if (message.getId() <= lastMessageId) {
+                    // Already part of the seed
+                    return;
+                }
+                lastMessageId = message.getId();
+            }
+            String text = message.getContent() != null ? message.getContent() : "";
+            int maxChars = windowBudget() * CHARS_PER_TOKEN;
+            if (text.length() > maxChars) {
+                text = text.substring(0, maxChars);
+            }
+            ConversationContext.Turn turn = new ConversationContext.Turn(message.getType(), text, estimateTokens(text));
+            window.addLast(turn);
+            windowTokens += turn.tokens();
+
+            while (window.size() > 1 && (window.size() > settings.getMaxTurns() || windowTokens > windowBudget())) {
+                condense(window.removeFirst());
+            }
+        }
+
+        ConversationContext snapshot() {
+            if (summaryStale) {
+                summary = buildSummary();
+                summaryStale = false;
+            }
+            return new ConversationContext(summary, List.copyOf(window), condensedTurns,
+                    windowTokens + estimateTokens(summary));
+        }
+
+        private int windowBudget() {
+            return Math.max(1, settings.getMaxTokens() - settings.getSummaryTokens());
+        }
+
+        /** Fold a turn leaving the window into the summary state */
+        private void condense(ConversationContext.Turn turn) {
+            windowTokens -= turn.tokens();
+            condensedTurns++;
+            summaryStale = true;
+            if (opening == null && turn.type() == ChatMessage.MessageType.USER) {
+                opening = turn.text().length() > OPENING_CHARS ? turn.text().substring(0, OPENING_CHARS) : turn.text();
+            }
+            ChatSearchIndex.tokenize(turn.text(), term -> {
+                if (term.length() > 2 && !STOP_WORDS.contains(term) && !Character.isDigit(term.charAt(0))) {
+                    termCounts.merge(term, 1, Integer::sum);
+                }
+            });
+            // Keep the term table bounded, pruning in batches so the cost is amortized
+            if (termCounts.size() > settings.getSummaryTerms() * 8) {
+                Set<String> keep = new HashSet<>(topTerms(settings.getSummaryTerms() * 4));
+                termCounts.keySet().retainAll(keep);
+            }
+        }
+
+        private String buildSummary() {
+            StringBuilder text = new StringBuilder();
+            text.append(condensedTurns).append(condensedTurns == 1 ? " earlier message" : " earlier messages");
+            if (opening != null) {
+                text.append(", starting with \"").append(opening).append('"');
+            }
+            List<String> topics = topTerms(settings.getSummaryTerms());
+            if (!topics.isEmpty()) {
+                text.append("; topics: ").append(String.join(", ", topics));
+            }
+            text.append('.');
+            int maxChars = settings.getSummaryTokens() * CHARS_PER_TOKEN;
+            return text.length() > maxChars ? text.substring(0, maxChars) : text.toString();
+        }
+
+        private List<String> topTerms(int limit) {
+            return termCounts.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                    .limit(limit)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        }
+    }
+}
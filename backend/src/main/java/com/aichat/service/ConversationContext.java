@@ -0,0 +1,50 @@
+package com.aichat.service;
+
+import com.aichat.model.ChatMessage;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Context for generating the next reply in a session: a condensed summary of
+ * older turns followed by the most recent turns verbatim, within a token budget
+ *
+ * @param summary        condensed older turns, empty when every turn fits the window
+ * @param turns          recent turns, oldest first
+ * @param condensedTurns turns folded into the summary
+ * @param tokens         estimated tokens of the rendered context
+ */
+public record ConversationContext(String summary, List<Turn> turns, int condensedTurns, int tokens) {
+
+    public static final ConversationContext EMPTY = new ConversationContext("", List.of(), 0, 0);
+
+    /**
+     * The context as prompt text for a model
+     */
+    public String render() {
+        StringBuilder prompt = new StringBuilder();
+        if (!summary.isEmpty()) {
+            prompt.append("Earlier in this conversation: ").append(summary).append("\n\n");
+        }
+        for (Turn turn : turns) {
+            prompt.append(turn.type() == ChatMessage.MessageType.AI ? "Assistant: " : "User: ")
+                    .append(turn.text())
+                    .append('\n');
+        }
+        return prompt.toString();
+    }
+
+    /**
+     * Size of the context, as reported back to clients
+     */
+    public Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("windowTurns", turns.size());
+        description.put("condensedTurns", condensedTurns);
+        description.put("contextTokens", tokens);
+        return description;
+    }
+
+    public record Turn(ChatMessage.MessageType type, String text, int tokens) {
+    }
+}
@@ -0,0 +1,520 @@
+package com.aichat.service;
+
+import com.aichat.config.McpProperties;
+import com.aichat.model.QueryResultChunk;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Scheduler;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs read-only SQL for the database tool against the configured JDBC
+ * datasources. Each datasource keeps a small pool of connections, each with
+ * its own cache of prepared statements, and a cache of parsed queries, so a
+ * query repeated with new parameters is neither parsed nor prepared again.
+ * Results are read from a forward-only cursor in chunks as they are
+ * consumed, within row and byte limits.
+ */
+@Component
+@Slf4j
+public class DatabaseQueryExecutor {
+
+    private static final Set<String> READ_KEYWORDS = Set.of("SELECT", "WITH", "VALUES", "TABLE", "EXPLAIN", "SHOW");
+
+    private final McpProperties mcpProperties;
+    private final McpProperties.DatabaseSettings settings;
+    private final Scheduler blockingScheduler;
+    private final Map<String, DataSourcePool> pools = new LinkedHashMap<>();
+
+    public DatabaseQueryExecutor(McpProperties mcpProperties, Scheduler blockingScheduler) {
+        this.mcpProperties = mcpProperties;
+        this.settings = mcpProperties.getTools().getDatabase();
+        this.blockingScheduler = blockingScheduler;
+    }
+
+    /**
+     * Initialize the datasources. Queries run in-process only in local mode;
+     * a datasource that cannot be initialized stays unavailable.
+     */
+    @PostConstruct
+    void start() {
+        if (mcpProperties.getServer().getMode() != McpProperties.Server.ExecutionMode.LOCAL || !settings.isEnabled()) {
+            return;
+        }
+        settings.getDatasources().forEach((name, dataSource) -> {
+            try {
+                if (dataSource.getInitScript() != null) {
+                    runInitScript(dataSource);
+                }
+                pools.put(name, new DataSourcePool(name, dataSource));
+                log.info("Database tool datasource {} is {}", name, dataSource.getUrl());
+            } catch (SQLException | RuntimeException e) {
+                log.warn("Database tool datasource {} is unavailable: {}", name, e.toString());
+            }
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        pools.values().forEach(DataSourcePool::close);
+    }
+
+    /**
+     * Names of the available datasources
+     */
+    public List<String> getDatabases() {
+        return List.copyOf(pools.keySet());
+    }
+
+    /**
+     * Stream the rows of a query in chunks. Rows are only read from the
+     * database as chunks are requested, and the connection is returned when
+     * the stream completes, fails or is cancelled.
+     */
+    public Flux<QueryResultChunk> stream(String database, String sql, List<Object> params, Integer maxRows) {
+        DataSourcePool pool = pools.get(database);
+        if (pool == null) {
+            return Flux.error(new IllegalArgumentException("Unknown database: " + database + "; available: " + pools.keySet()));
+        }
+        int rowLimit = maxRows != null ? Math.min(maxRows, settings.getMaxRows()) : settings.getMaxRows();
+        List<Object> parameters = params != null ? params : List.of();
+        return Flux.<QueryResultChunk, Cursor>generate(
+                        () -> pool.open(sql, parameters, rowLimit),
+                        this::nextChunk,
+                        Cursor::close)
+                .onErrorMap(SQLException.class, e -> new IllegalStateException("Query failed: " + e.getMessage(), e))
+                .subscribeOn(blockingScheduler);
+    }
+
+    /**
+     * Run a query and gather its rows, within the same limits as a stream
+     */
+    public Mono<Object> execute(String database, String sql, List<Object> params, Integer maxRows) {
+        return stream(database, sql, params, maxRows).collectList().map(chunks -> {
+            Map<String, Object> result = new LinkedHashMap<>();
+            List<List<Object>> rows = new ArrayList<>();
+            result.put("database", database);
+            for (QueryResultChunk chunk : chunks) {
+                if (chunk.getColumns() != null) {
+                    result.put("columns", chunk.getColumns());
+                }
+                rows.addAll(chunk.getRows());
+                if (chunk.getRowCount() != null) {
+                    result.put("rowCount", chunk.getRowCount());
+                    result.put("truncated", chunk.getTruncated());
+                    result.put("tookMs", chunk.getTookMs());
+                }
+            }
+            result.put("rows", rows);
+            return result;
+        });
+    }
+
+    private Cursor nextChunk(Cursor cursor, SynchronousSink<QueryResultChunk> sink) {
+        if (cursor.done) {
+            sink.complete();
+            return cursor;
+        }
+        try {
+            QueryResultChunk chunk = new QueryResultChunk();
+            if (cursor.columns != null) {
+                chunk.setColumns(cursor.columns);
+                cursor.columns = null;
+            }
+            List<List<Object>> rows = new ArrayList<>(Math.min(settings.getChunkRows(), 1024));
+            long maxBytes = settings.getMaxBytes().toBytes();
+            while (rows.size() < settings.getChunkRows()) {
+                if (!cursor.resultSet.next()) {
+                    cursor.done = true;
+                    break;
+                }
+                if (cursor.rowCount == cursor.rowLimit) {
+                    cursor.done = true;
+                    cursor.truncated = true;
+                    break;
+                }
+                List<Object> row = new ArrayList<>(cursor.columnCount);
+                long rowBytes = 2;
+                for (int i = 1; i <= cursor.columnCount; i++) {
+                    Object value = toJsonValue(cursor.resultSet.getObject(i), maxBytes);
+                    rowBytes += estimatedBytes(value) + 1;
+                    row.add(value);
+                }
+                if (cursor.bytes + rowBytes > maxBytes) {
+                    cursor.done = true;
+                    cursor.truncated = true;
+                    break;
+                }
+                cursor.bytes += rowBytes;
+                cursor.rowCount++;
+                rows.add(row);
+            }
+            chunk.setRows(rows);
+            if (cursor.done) {
+                chunk.setRowCount(cursor.rowCount);
+                chunk.setTruncated(cursor.truncated);
+                chunk.setTookMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - cursor.startedAt));
+            }
+            sink.next(chunk);
+        } catch (SQLException e) {
+            cursor.failed = true;
+            sink.error(new IllegalStateException("Query failed: " + e.getMessage(), e));
+        }
+        return cursor;
+    }
+
+    private static Object toJsonValue(Object value, long maxBytes) throws SQLException {
+        if (value == null || value instanceof Number || value instanceof Boolean || value instanceof String) {
+            return value;
+        }
+        if (value instanceof java.util.Date || value instanceof Temporal) {
+            return value instanceof java.sql.Timestamp timestamp ? timestamp.toLocalDateTime().toString() : value.toString();
+        }
+        if (value instanceof byte[] bytes) {
+            return Base64.getEncoder().encodeToString(bytes);
+        }
+        if (value instanceof Clob clob) {
+            return clob.getSubString(1, (int) Math.min(clob.length(), maxBytes));
+        }
+        return value.toString();
+    }
+
+    private static long estimatedBytes(Object value) {
+        if (value == null) {
+            return 4;
+        }
+        if (value instanceof String text) {
+            return text.length() + 2L;
+        }
+        return value.toString().length();
+    }
+
+    private void runInitScript(McpProperties.DataSourceSettings dataSource) throws SQLException {
+        String username = dataSource.getInitUsername() != null ? dataSource.getInitUsername() : dataSource.getUsername();
+        String password = dataSource.getInitUsername() != null ? dataSource.getInitPassword() : dataSource.getPassword();
+        try (Connection connection = DriverManager.getConnection(dataSource.getUrl(), username, password)) {
+            ScriptUtils.executeSqlScript(connection, new DefaultResourceLoader().getResource(dataSource.getInitScript()));
+        }
+    }
+
+    /**
+     * Check that SQL is a single read-only statement, and count its
+     * parameter markers. Quoted text and comments are skipped. This rejects
+     * mistakes early; the datasource credentials are what enforce read-only.
+     */
+    static ParsedQuery parse(String sql) {
+        int length = sql.length();
+        String keyword = null;
+        int parameterCount = 0;
+        int end = length;
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                int close = i + 1;
+                while (close < length) {
+                    if (sql.charAt(close) == c) {
+                        if (close + 1 < length && sql.charAt(close + 1) == c) {
+                            close += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    close++;
+                }
+                if (close >= length) {
+                    throw new IllegalArgumentException("Unterminated quote in query");
+                }
+                i = close + 1;
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int newline = sql.indexOf('\n', i);
+                i = newline < 0 ? length : newline + 1;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int close = sql.indexOf("*/", i + 2);
+                if (close < 0) {
+                    throw new IllegalArgumentException("Unterminated comment in query");
+                }
+                i = close + 2;
+            } else if (c == ';') {
+                if (end == length) {
+                    end = i;
+                }
+                i++;
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else {
+                if (end != length) {
+                    throw new IllegalArgumentException("Only a single statement is allowed");
+                }
+                if (c == '?') {
+                    parameterCount++;
+                    i++;
+                } else if (keyword == null && Character.isLetter(c)) {
+                    int start = i;
+                    while (i < length && Character.isLetter(sql.charAt(i))) {
+                        i++;
+                    }
+                    keyword = sql.substring(start, i).toUpperCase(Locale.ROOT);
+                } else {
+                    i++;
+                }
+            }
+        }
+        if (keyword == null) {
+            throw new IllegalArgumentException("Query is empty");
+        }
+        if (!READ_KEYWORDS.contains(keyword)) {
+            throw new IllegalArgumentException("Only read-only queries are allowed, not " + keyword);
+        }
+        return new ParsedQuery(sql.substring(0, end).strip(), parameterCount);
+    }
+
+    record ParsedQuery(String sql, int parameterCount) {
+    }
+
+    /**
+     * Connections of one datasource, created on demand up to the pool size
+     */
+    private final class DataSourcePool {
+
+        private final String name;
+        private final McpProperties.DataSourceSettings dataSource;
+        private final BlockingQueue<PooledConnection> idle;
+        private final AtomicInteger open = new AtomicInteger();
+        private final Map<String, ParsedQuery> parsedQueries;
+        private volatile boolean closed;
+
+        DataSourcePool(String name, McpProperties.DataSourceSettings dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.idle = new ArrayBlockingQueue<>(Math.max(1, dataSource.getPoolSize()));
+            int cacheSize = settings.getQueryCacheSize();
+            this.parsedQueries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ParsedQuery> eldest) {
+                    return size() > cacheSize;
+                }
+            });
+        }
+
+        Cursor open(String sql, List<Object> parameters, int rowLimit) throws SQLException, InterruptedException {
+            ParsedQuery query = parsedQueries.get(sql);
+            if (query == null) {
+                query = parse(sql);
+                parsedQueries.put(sql, query);
+            }
+            if (query.parameterCount() != parameters.size()) {
+                throw new IllegalArgumentException("Query has " + query.parameterCount() + " parameters but "
+                        + parameters.size() + " were given");
+            }
+
+            PooledConnection connection = acquire();
+            Cursor cursor = new Cursor(this, connection, rowLimit);
+            try {
+                PreparedStatement statement = connection.prepare(query.sql());
+                // One row past the limit tells a truncated result from one that fits exactly
+                int maxRows = rowLimit == Integer.MAX_VALUE ? 0 : rowLimit + 1;
+                statement.setMaxRows(maxRows);
+                statement.setFetchSize(maxRows == 0 ? settings.getChunkRows() : Math.min(settings.getChunkRows(), maxRows));
+                statement.setQueryTimeout((int) Math.max(1, queryTimeout().toSeconds()));
+                for (int i = 0; i < parameters.size(); i++) {
+                    statement.setObject(i + 1, parameters.get(i));
+                }
+                cursor.statement = statement;
+                cursor.resultSet = statement.executeQuery();
+                ResultSetMetaData metaData = cursor.resultSet.getMetaData();
+                cursor.columnCount = metaData.getColumnCount();
+                List<String> columns = new ArrayList<>(cursor.columnCount);
+                for (int i = 1; i <= cursor.columnCount; i++) {
+                    columns.add(metaData.getColumnLabel(i));
+                }
+                cursor.columns = columns;
+                return cursor;
+            } catch (SQLException | RuntimeException e) {
+                cursor.failed = true;
+                cursor.close();
+                throw e;
+            }
+        }
+
+        private PooledConnection acquire() throws SQLException, InterruptedException {
+            PooledConnection connection = idle.poll();
+            if (connection != null) {
+                return connection;
+            }
+            if (open.incrementAndGet() <= dataSource.getPoolSize()) {
+                try {
+                    return new PooledConnection(DriverManager.getConnection(
+                            dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword()));
+                } catch (SQLException | RuntimeException e) {
+                    open.decrementAndGet();
+                    throw e;
+                }
+            }
+            open.decrementAndGet();
+            connection = idle.poll(dataSource.getAcquireTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            if (connection == null) {
+                throw new RejectedExecutionException("No connection to " + name + " became free within "
+                        + dataSource.getAcquireTimeout().toMillis() + " ms");
+            }
+            return connection;
+        }
+
+        /**
+         * Return a connection, or close it when it may no longer be usable
+         */
+        void release(PooledConnection connection, boolean failed) {
+            boolean usable;
+            try {
+                connection.connection.rollback();
+                usable = !closed && (!failed || connection.connection.isValid(1));
+            } catch (SQLException e) {
+                usable = false;
+            }
+            if (usable && idle.offer(connection)) {
+                return;
+            }
+            connection.close();
+            open.decrementAndGet();
+        }
+
+        void close() {
+            closed = true;
+            PooledConnection connection;
+            while ((connection = idle.poll()) != null) {
+                connection.close();
+            }
+        }
+    }
+
+    private Duration queryTimeout() {
+        return settings.getTimeout() != null ? settings.getTimeout() : mcpProperties.getServer().getTimeout();
+    }
+
+    /**
+     * A read-only connection with an LRU cache of its prepared statements
+     */
+    private final class PooledConnection {
+
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements;
+
+        PooledConnection(Connection connection) throws SQLException {
+            this.connection = connection;
+            connection.setReadOnly(true);
+            // Some drivers only stream result sets inside a transaction
+            connection.setAutoCommit(false);
+            int cacheSize = settings.getStatementCacheSize();
+            this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() <= cacheSize) {
+                        return false;
+                    }
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+            };
+        }
+
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null || statement.isClosed()) {
+                statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+
+        void close() {
+            statements.values().forEach(PooledConnection::closeQuietly);
+            statements.clear();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.debug("Could not close database tool connection: {}", e.toString());
+            }
+        }
+
+        private static void closeQuietly(PreparedStatement statement) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                log.debug("Could not close prepared statement: {}", e.toString());
+            }
+        }
+    }
+
+    /**
+     * An open result set and the connection it holds until it is closed
+     */
+    private static final class Cursor {
+
+        private final DataSourcePool pool;
+        private final PooledConnection connection;
+        private final int rowLimit;
+        private final long startedAt = System.nanoTime();
+        private PreparedStatement statement;
+        private ResultSet resultSet;
+        private int columnCount;
+        private List<String> columns;
+        private long rowCount;
+        private long bytes;
+        private boolean done;
+        private boolean truncated;
+        private boolean failed;
+        private boolean closed;
+
+        Cursor(DataSourcePool pool, PooledConnection connection, int rowLimit) {
+            this.pool = pool;
+            this.connection = connection;
+            this.rowLimit = rowLimit;
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                if (statement != null) {
+                    statement.clearParameters();
+                }
+            } catch (SQLException e) {
+                failed = true;
+            }
+            pool.release(connection, failed);
+        }
+    }
+}
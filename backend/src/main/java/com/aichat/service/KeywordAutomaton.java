@@ -0,0 +1,168 @@
+package com.aichat.service;
+
+import java.util.*;
+
+/**
+ * Aho-Corasick automaton over the keywords of an ordered list of rules,
+ * compiled to a dense DFA. Matching is case-insensitive and runs in one
+ * pass over the text without allocating; it reports the highest priority
+ * (lowest index) rule with a keyword occurring anywhere in the text.
+ * Instances are immutable and safe to share between threads.
+ */
+public final class KeywordAutomaton {
+
+    /** Character class of characters that occur in no keyword */
+    private static final int OTHER = 0;
+
+    private final int[] asciiClasses = new int[128];
+    private final char[] otherChars;
+    private final int[] otherClasses;
+    private final int width;
+    /** transitions[state * width + class] is the next state */
+    private final int[] transitions;
+    /** Highest priority rule matched on reaching a state, or -1 */
+    private final int[] matches;
+
+    /**
+     * @param keywordsByRule keywords of each rule, in priority order
+     */
+    public KeywordAutomaton(List<? extends Collection<String>> keywordsByRule) {
+        // Compact the alphabet to the characters that occur in keywords
+        SortedMap<Character, Integer> alphabet = new TreeMap<>();
+        for (Collection<String> keywords : keywordsByRule) {
+            for (String keyword : keywords) {
+                for (int i = 0; i < keyword.length(); i++) {
+                    alphabet.putIfAbsent(fold(keyword.charAt(i)), 0);
+                }
+            }
+        }
+        int nextClass = 1;
+        List<Character> nonAscii = new ArrayList<>();
+        for (Map.Entry<Character, Integer> entry : alphabet.entrySet()) {
+            entry.setValue(nextClass++);
+            if (entry.getKey() >= 128) {
+                nonAscii.add(entry.getKey());
+            }
+        }
+        this.width = nextClass;
+        this.otherChars = new char[nonAscii.size()];
+        this.otherClasses = new int[nonAscii.size()];
+        for (int i = 0; i < nonAscii.size(); i++) {
+            otherChars[i] = nonAscii.get(i);
+            otherClasses[i] = alphabet.get(nonAscii.get(i));
+        }
+        alphabet.forEach((c, cls) -> {
+            if (c < 128) {
+                asciiClasses[c] = cls;
+            }
+        });
+        // Upper-case ASCII letters share the class of their lower-case form
+        for (char c = 'A'; c <= 'Z'; c++) {
+            asciiClasses[c] = asciiClasses[Character.toLowerCase(c)];
+        }
+
+        // Build the keyword trie
+        List<int[]> trie = new ArrayList<>();
+        List<Integer> output = new ArrayList<>();
+        trie.add(new int[width]);
+        output.add(-1);
+        for (int rule = 0; rule < keywordsByRule.size(); rule++) {
+            for (String keyword : keywordsByRule.get(rule)) {
+                if (keyword.isEmpty()) {
+                    continue;
+                }
+                int state = 0;
+                for (int i = 0; i < keyword.length(); i++) {
+                    int cls = classOf(keyword.charAt(i));
+                    int next = trie.get(state)[cls];
+                    if (next == 0) {
+                        next = trie.size();
+                        trie.add(new int[width]);
+                        output.add(-1);
+                        trie.get(state)[cls] = next;
+                    }
+                    state = next;
+                }
+                if (output.get(state) < 0 || rule < output.get(state)) {
+                    output.set(state, rule);
+                }
+            }
+        }
+
+        // Resolve failure links breadth first into full DFA transitions
+        int states = trie.size();
+        this.transitions = new int[states * width];
+        this.matches = new int[states];
+        int[] failure = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int cls = 0; cls < width; cls++) {
+            int next = trie.get(0)[cls];
+            transitions[cls] = next;
+            if (next != 0) {
+                failure[next] = 0;
+                queue.add(next);
+            }
+        }
+        matches[0] = output.get(0);
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            matches[state] = best(output.get(state), matches[failure[state]]);
+            for (int cls = 0; cls < width; cls++) {
+                int next = trie.get(state)[cls];
+                if (next != 0) {
+                    failure[next] = transitions[failure[state] * width + cls];
+                    transitions[state * width + cls] = next;
+                    queue.add(next);
+                } else {
+                    transitions[state * width + cls] = transitions[failure[state] * width + cls];
+                }
+            }
+        }
+    }
+
+    /**
+     * Index of the highest priority rule with a keyword in the text, or -1
+     */
+    public int match(CharSequence text) {
+        int best = -1;
+        int state = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            state = transitions[state * width + classOf(text.charAt(i))];
+            int rule = matches[state];
+            if (rule >= 0 && (best < 0 || rule < best)) {
+                best = rule;
+                if (best == 0) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    public int stateCount() {
+        return matches.length;
+    }
+
+    private int classOf(char c) {
+        if (c < 128) {
+            return asciiClasses[c];
+        }
+        char folded = fold(c);
+        if (folded < 128) {
+            return asciiClasses[folded];
+        }
+        int index = Arrays.binarySearch(otherChars, folded);
+        return index >= 0 ? otherClasses[index] : OTHER;
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(c);
+    }
+
+    private static int best(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        return b < 0 ? a : Math.min(a, b);
+    }
+}
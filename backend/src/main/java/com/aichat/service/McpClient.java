@@ -0,0 +1,195 @@
+package com.aichat.service;
+
+import com.aichat.config.McpProperties;
+import com.aichat.model.McpTool;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Pooled, resilient HTTP client for the remote MCP server
+ */
+@Component
+@Slf4j
+public class McpClient {
+
+    private static final ParameterizedTypeReference<Map<String, Object>> JSON_OBJECT = new ParameterizedTypeReference<>() {};
+
+    private final McpProperties.Server settings;
+    private final ConnectionProvider connectionProvider;
+    private final WebClient webClient;
+    private final CircuitBreaker circuitBreaker;
+
+    private volatile boolean available = true;
+    private Disposable healthProbe;
+
+    public McpClient(McpProperties mcpProperties) {
+        this.settings = mcpProperties.getServer();
+
+        McpProperties.Pool pool = settings.getPool();
+        this.connectionProvider = ConnectionProvider.builder("mcp-server")
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getMaxIdleTime())
+                .build();
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .keepAlive(true)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) settings.getConnectTimeout().toMillis())
+                .responseTimeout(settings.getTimeout());
+
+        this.webClient = WebClient.builder()
+                .baseUrl(settings.getUrl())
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+
+        McpProperties.CircuitBreaker breaker = settings.getCircuitBreaker();
+        this.circuitBreaker = new CircuitBreaker(breaker.getFailureThreshold(), breaker.getOpenDuration());
+    }
+
+    /**
+     * Probe server health in the background so requests only read a cached flag
+     */
+    @PostConstruct
+    void startHealthProbe() {
+        healthProbe = Flux.interval(Duration.ZERO, settings.getHealthInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> probeHealth())
+                .subscribe(this::updateAvailability);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (healthProbe != null) {
+            healthProbe.dispose();
+        }
+        connectionProvider.dispose();
+    }
+
+    /**
+     * Execute a tool on the remote server. Idempotent calls are retried with
+     * jittered backoff on transport failures; every attempt has its own deadline.
+     */
+    public Mono<Object> execute(String toolName, Map<String, Object> parameters, boolean idempotent, Duration timeout) {
+        Mono<Object> call = Mono.defer(() -> {
+            if (!available) {
+                return Mono.error(new IllegalStateException("MCP server is unavailable"));
+            }
+            if (!circuitBreaker.tryAcquire()) {
+                return Mono.error(new IllegalStateException("MCP server circuit breaker is open"));
+            }
+            return webClient.post()
+                    .uri("/execute")
+                    .bodyValue(Map.of("toolName", toolName, "parameters", parameters))
+                    .exchangeToMono(response -> response.bodyToMono(JSON_OBJECT)
+                            .defaultIfEmpty(Map.of())
+                            .map(body -> toResult(response.statusCode(), body)))
+                    .timeout(timeout)
+                    .doOnSuccess(result -> circuitBreaker.onSuccess())
+                    .doOnError(error -> {
+                        if (isTransportFailure(error)) {
+                            circuitBreaker.onFailure();
+                        } else {
+                            // The server answered, so it is healthy even though the tool failed
+                            circuitBreaker.onSuccess();
+                        }
+                    })
+                    .doOnCancel(circuitBreaker::onCancel);
+        });
+
+        if (!idempotent) {
+            return call;
+        }
+        McpProperties.Retry retry = settings.getRetry();
+        return call.retryWhen(Retry.backoff(retry.getMaxRetries(), retry.getMinBackoff())
+                .maxBackoff(retry.getMaxBackoff())
+                .jitter(retry.getJitter())
+                .filter(McpClient::isTransportFailure)
+                .doBeforeRetry(signal -> log.debug("Retrying MCP tool {} after: {}", toolName, signal.failure().getMessage()))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    /**
+     * The tools the remote server offers, from its /tools endpoint
+     */
+    public Mono<List<McpTool>> fetchTools() {
+        return webClient.get()
+                .uri("/tools")
+                .retrieve()
+                .bodyToFlux(McpTool.class)
+                .collectList()
+                .timeout(settings.getTimeout());
+    }
+
+    /**
+     * Last known availability of the MCP server
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    private Mono<Boolean> probeHealth() {
+        return webClient.get()
+                .uri("/health")
+                .retrieve()
+                .toBodilessEntity()
+                .map(response -> true)
+                .timeout(settings.getConnectTimeout().plus(settings.getConnectTimeout()))
+                .onErrorReturn(false);
+    }
+
+    private void updateAvailability(boolean up) {
+        if (up != available) {
+            log.info("MCP server at {} is now {}", settings.getUrl(), up ? "available" : "unavailable");
+        }
+        available = up;
+    }
+
+    private static Object toResult(HttpStatusCode status, Map<String, Object> body) {
+        if (status.is2xxSuccessful()) {
+            Object result = body.get("result");
+            return result != null ? result : Map.of();
+        }
+        String message = String.valueOf(body.getOrDefault("error", status.toString()));
+        if (status.value() == 502 || status.value() == 503 || status.value() == 504) {
+            throw new ServerUnavailableException("MCP server unavailable: " + message);
+        }
+        throw new RuntimeException("Remote tool execution failed: " + message);
+    }
+
+    private static boolean isTransportFailure(Throwable error) {
+        return error instanceof TimeoutException
+                || error instanceof WebClientRequestException
+                || error instanceof ServerUnavailableException;
+    }
+
+    private static class ServerUnavailableException extends RuntimeException {
+        ServerUnavailableException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.aichat.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for MCP tool execution. Meters are created once per
+ * tool and operation and looked up without allocation afterwards.
+ */
+@Component
+public class McpMetrics {
+
+    /** Operations reported as their own tag; anything else is "other" to bound cardinality */
+    private static final Set<String> KNOWN_OPERATIONS = Set.of(
+            "read", "write", "list", "exists", "query", "insert", "update", "delete");
+
+    private final MeterRegistry registry;
+    private final Map<String, Map<String, ToolMeters>> meters = new ConcurrentHashMap<>();
+
+    public McpMetrics(MeterRegistry registry, ToolResultCache toolResultCache, McpClient mcpClient) {
+        this.registry = registry;
+
+        Gauge.builder("mcp.tool.cache.size", toolResultCache, ToolResultCache::size)
+                .description("Cached read-only tool results")
+                .register(registry);
+        Gauge.builder("mcp.tool.cache.inflight", toolResultCache, ToolResultCache::inFlightCount)
+                .description("Tool calls waiting on a shared in-flight load")
+                .register(registry);
+        FunctionCounter.builder("mcp.tool.cache.requests", toolResultCache, ToolResultCache::hitCount)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("mcp.tool.cache.requests", toolResultCache, ToolResultCache::missCount)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("mcp.tool.cache.requests", toolResultCache, ToolResultCache::collapsedCount)
+                .tag("result", "collapsed")
+                .register(registry);
+        Gauge.builder("mcp.server.available", mcpClient, client -> client.isAvailable() ? 1 : 0)
+                .description("Whether the last health probe of the MCP server succeeded")
+                .register(registry);
+    }
+
+    /**
+     * Time a tool execution by outcome and count its errors
+     */
+    public <T> Mono<T> record(String toolName, Object operation, Mono<T> execution) {
+        ToolMeters toolMeters = meters(toolName, operationTag(operation));
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return execution
+                    .doOnError(error -> toolMeters.errors.increment())
+                    .doFinally(signal -> {
+                        Timer timer = signal == SignalType.ON_ERROR ? toolMeters.failed
+                                : signal == SignalType.CANCEL ? toolMeters.cancelled
+                                : toolMeters.success;
+                        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    });
+        });
+    }
+
+    private ToolMeters meters(String toolName, String operation) {
+        Map<String, ToolMeters> byOperation = meters.get(toolName);
+        if (byOperation == null) {
+            byOperation = meters.computeIfAbsent(toolName, name -> new ConcurrentHashMap<>());
+        }
+        ToolMeters toolMeters = byOperation.get(operation);
+        if (toolMeters == null) {
+            toolMeters = byOperation.computeIfAbsent(operation, op -> new ToolMeters(registry, toolName, op));
+        }
+        return toolMeters;
+    }
+
+    private static String operationTag(Object operation) {
+        if (operation == null) {
+            return "default";
+        }
+        return operation instanceof String name && KNOWN_OPERATIONS.contains(name) ? name : "other";
+    }
+
+    private static final class ToolMeters {
+
+        private final Timer success;
+        private final Timer failed;
+        private final Timer cancelled;
+        private final Counter errors;
+
+        ToolMeters(MeterRegistry registry, String toolName, String operation) {
+            this.success = timer(registry, toolName, operation, "success");
+            this.failed = timer(registry, toolName, operation, "error");
+            this.cancelled = timer(registry, toolName, operation, "cancelled");
+            this.errors = Counter.builder("mcp.tool.errors")
+                    .description("Failed MCP tool executions")
+                    .tag("tool", toolName)
+                    .tag("operation", operation)
+                    .register(registry);
+        }
+
+        private static Timer timer(MeterRegistry registry, String toolName, String operation, String outcome) {
+            return Timer.builder("mcp.tool.execution")
+                    .description("MCP tool execution latency")
+                    .tag("tool", toolName)
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+    }
+}
@@ -1,13 +1,24 @@
 package com.aichat.service;
 
+import com.aichat.config.McpProperties;
 import com.aichat.model.McpTool;
+import com.aichat.model.McpToolInvocation;
+import com.aichat.model.QueryResultChunk;
+import com.aichat.model.ToolExecutionResult;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 import java.util.*;
 import java.nio.file.*;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Service for handling Model Context Protocol (MCP) operations
@@ -16,65 +27,147 @@ import java.io.IOException;
 @Slf4j
 public class McpService {
     
-    private final WebClient webClient;
-    private final Map<String, McpTool> availableTools;
+    private final McpToolRegistry toolRegistry;
+    private final SandboxExecutor sandboxExecutor;
+    private final DatabaseQueryExecutor databaseQueryExecutor;
+    private final Scheduler blockingScheduler;
+    private final McpClient mcpClient;
+    private final McpProperties mcpProperties;
+    private final ToolResultCache toolResultCache;
+    private final McpMetrics mcpMetrics;
     
-    public McpService() {
-        this.webClient = WebClient.builder()
-                .baseUrl("http://localhost:3001") // Default MCP server URL
-                .build();
-        
-        this.availableTools = initializeDefaultTools();
+    public McpService(Scheduler blockingScheduler, McpClient mcpClient, McpProperties mcpProperties,
+                      ToolResultCache toolResultCache, McpMetrics mcpMetrics, McpToolRegistry toolRegistry,
+                      SandboxExecutor sandboxExecutor, DatabaseQueryExecutor databaseQueryExecutor) {
+        this.blockingScheduler = blockingScheduler;
+        this.mcpClient = mcpClient;
+        this.mcpProperties = mcpProperties;
+        this.toolResultCache = toolResultCache;
+        this.mcpMetrics = mcpMetrics;
+        this.toolRegistry = toolRegistry;
+        this.sandboxExecutor = sandboxExecutor;
+        this.databaseQueryExecutor = databaseQueryExecutor;
     }
     
     /**
-     * Initialize default MCP tools
+     * Get all available MCP tools
      */
-    private Map<String, McpTool> initializeDefaultTools() {
-        Map<String, McpTool> tools = new HashMap<>();
-        
-        // File system tool
-        tools.put("filesystem", new McpTool(
-            "filesystem",
-            "Access and manipulate files on the local filesystem"
-        ));
-        
-        // Web search tool
-        tools.put("web_search", new McpTool(
-            "web_search",
-            "Search the web for current information"
-        ));
-        
-        // Code execution tool
-        tools.put("code_execution", new McpTool(
-            "code_execution",
-            "Execute code in various programming languages"
-        ));
-        
-        // Database tool
-        tools.put("database", new McpTool(
-            "database",
-            "Query and manipulate databases"
-        ));
-        
-        return tools;
+    public List<McpTool> getAvailableTools() {
+        return toolRegistry.getTools();
     }
     
     /**
-     * Get all available MCP tools
+     * Get a tool by name, or null when there is none
      */
-    public List<McpTool> getAvailableTools() {
-        return new ArrayList<>(availableTools.values());
+    public McpTool getTool(String toolName) {
+        McpToolRegistry.RegisteredTool registered = toolRegistry.lookup(toolName);
+        return registered != null ? registered.tool() : null;
+    }
+    
+    /**
+     * Whether a registered tool rejects being called without parameters
+     */
+    public boolean requiresParameters(String toolName) {
+        McpToolRegistry.RegisteredTool tool = toolRegistry.lookup(toolName);
+        return tool != null && tool.validator().validate(Map.of()) != null;
     }
     
     /**
      * Execute an MCP tool
      */
     public Mono<Object> executeTool(String toolName, Map<String, Object> parameters) {
-        McpTool tool = availableTools.get(toolName);
+        McpToolRegistry.RegisteredTool tool = toolRegistry.lookup(toolName);
         if (tool == null) {
             return Mono.error(new IllegalArgumentException("Tool not found: " + toolName));
         }
+        String violation = tool.validator().validate(parameters);
+        if (violation != null) {
+            return Mono.error(new IllegalArgumentException(violation));
+        }
+        
+        Mono<Object> execution;
+        if (isReadOnly(toolName, parameters)) {
+            McpProperties.ToolSettings settings = mcpProperties.getTool(toolName);
+            execution = toolResultCache.get(toolName, parameters, settings != null ? settings.getCacheTtl() : null,
+                    () -> dispatch(toolName, parameters));
+        } else {
+            execution = dispatch(toolName, parameters);
+            if ("filesystem".equals(toolName) && "write".equals(parameters.get("operation"))) {
+                execution = execution.doFinally(signal -> toolResultCache.invalidatePath(parameters.get("path")));
+            }
+        }
+        return mcpMetrics.record(toolName, parameters.get("operation"), execution);
+    }
+    
+    /**
+     * Execute a tool within its deadline, reporting failures and timeouts
+     * as a result instead of an error
+     */
+    public Mono<ToolExecutionResult> executeWithDeadline(String toolName, Map<String, Object> parameters) {
+        Duration deadline = timeoutFor(toolName);
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return Mono.defer(() -> executeTool(toolName, parameters != null ? parameters : Map.of()))
+                .timeout(deadline)
+                .map(result -> ToolExecutionResult.success(toolName, result, elapsedMillis(start)))
+                .onErrorResume(TimeoutException.class, error ->
+                    Mono.just(ToolExecutionResult.timeout(toolName, elapsedMillis(start))))
+                .onErrorResume(error -> {
+                    log.warn("MCP tool {} failed: {}", toolName, error.toString());
+                    String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+                    return Mono.just(ToolExecutionResult.failed(toolName, message, elapsedMillis(start)));
+                });
+        });
+    }
+    
+    /**
+     * Execute a batch of tool invocations. Runs of read-only invocations are
+     * independent and execute concurrently; an invocation that changes state
+     * waits for everything before it and runs alone. Results are emitted in
+     * request order, or in completion order within each run when
+     * {@code ordered} is false.
+     */
+    public Flux<ToolExecutionResult> executeBatch(List<McpToolInvocation> invocations, int parallelism, boolean ordered) {
+        List<List<Integer>> runs = new ArrayList<>();
+        List<Integer> current = new ArrayList<>();
+        for (int i = 0; i < invocations.size(); i++) {
+            McpToolInvocation invocation = invocations.get(i);
+            Map<String, Object> parameters = invocation.getParameters() != null ? invocation.getParameters() : Map.of();
+            if (isReadOnly(invocation.getToolName(), parameters)) {
+                current.add(i);
+                continue;
+            }
+            if (!current.isEmpty()) {
+                runs.add(current);
+                current = new ArrayList<>();
+            }
+            runs.add(List.of(i));
+        }
+        if (!current.isEmpty()) {
+            runs.add(current);
+        }
+        
+        return Flux.fromIterable(runs).concatMap(run -> {
+            Flux<Integer> indexes = Flux.fromIterable(run);
+            return ordered
+                ? indexes.flatMapSequential(index -> executeInvocation(invocations.get(index), index), parallelism)
+                : indexes.flatMap(index -> executeInvocation(invocations.get(index), index), parallelism);
+        });
+    }
+    
+    private Mono<ToolExecutionResult> executeInvocation(McpToolInvocation invocation, int index) {
+        return executeWithDeadline(invocation.getToolName(), invocation.getParameters())
+            .doOnNext(result -> result.setIndex(index));
+    }
+    
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+    
+    private Mono<Object> dispatch(String toolName, Map<String, Object> parameters) {
+        if (mcpProperties.getServer().getMode() == McpProperties.Server.ExecutionMode.REMOTE) {
+            return mcpClient.execute(toolName, parameters, isReadOnly(toolName, parameters), timeoutFor(toolName));
+        }
         
         return switch (toolName) {
             case "filesystem" -> executeFileSystemTool(parameters);
@@ -85,6 +178,37 @@ public class McpService {
         };
     }
     
+    /**
+     * Whether a tool call only reads state, making it safe to retry or cache
+     */
+    public static boolean isReadOnly(String toolName, Map<String, Object> parameters) {
+        if (toolName == null) {
+            return false;
+        }
+        Object operation = parameters != null ? parameters.get("operation") : null;
+        return switch (toolName) {
+            case "filesystem" -> "read".equals(operation) || "list".equals(operation) || "exists".equals(operation);
+            case "web_search" -> true;
+            case "database" -> operation == null || "query".equals(operation);
+            default -> false;
+        };
+    }
+    
+    /**
+     * Per-call deadline for a tool
+     */
+    public Duration timeoutFor(String toolName) {
+        if ("code_execution".equals(toolName) && mcpProperties.getServer().getMode() == McpProperties.Server.ExecutionMode.LOCAL) {
+            // Covers waiting for a worker as well, so the sandbox reports its own timeouts
+            return sandboxExecutor.deadline();
+        }
+        McpProperties.ToolSettings settings = mcpProperties.getTool(toolName);
+        if (settings != null && settings.getTimeout() != null) {
+            return settings.getTimeout();
+        }
+        return mcpProperties.getServer().getTimeout();
+    }
+    
     /**
      * Execute filesystem operations
      */
@@ -95,25 +219,174 @@ public class McpService {
         return Mono.fromCallable(() -> {
             try {
                 return switch (operation) {
-                    case "read" -> Files.readString(Paths.get(path));
+                    case "read" -> readFile(Paths.get(path), parameters);
                     case "write" -> {
                         String content = (String) parameters.get("content");
+                        if (content == null) {
+                            throw new IllegalArgumentException("Parameter 'content' is required for write");
+                        }
                         Files.writeString(Paths.get(path), content);
                         yield "File written successfully";
                     }
-                    case "list" -> {
-                        Path dirPath = Paths.get(path);
-                        List<String> files = new ArrayList<>();
-                        Files.list(dirPath).forEach(p -> files.add(p.getFileName().toString()));
-                        yield files;
-                    }
+                    case "list" -> listDirectory(Paths.get(path), parameters);
                     case "exists" -> Files.exists(Paths.get(path));
                     default -> throw new IllegalArgumentException("Unsupported filesystem operation: " + operation);
                 };
             } catch (IOException e) {
                 throw new RuntimeException("Filesystem operation failed: " + e.getMessage());
             }
-        });
+        }).subscribeOn(blockingScheduler);
+    }
+    
+    /**
+     * Read a whole file, or a byte range of it when offset/length are given.
+     * A range is widened or narrowed to whole UTF-8 characters, and the
+     * offset and nextOffset returned are the bytes actually covered, so
+     * reading on from nextOffset never splits a character. No single read
+     * returns more than max-read-bytes, plus the rest of one character.
+     */
+    private Object readFile(Path file, Map<String, Object> parameters) throws IOException {
+        long maxReadBytes = mcpProperties.getTools().getFilesystem().getMaxReadBytes().toBytes();
+        
+        if (!parameters.containsKey("offset") && !parameters.containsKey("length")) {
+            long size = Files.size(file);
+            if (size > maxReadBytes) {
+                throw new IllegalArgumentException("File is " + size + " bytes, larger than the " + maxReadBytes
+                        + " byte read limit; use offset/length to read it in ranges");
+            }
+            return Files.readString(file);
+        }
+        
+        long offset = longParameter(parameters, "offset", 0);
+        long length = Math.min(longParameter(parameters, "length", maxReadBytes), maxReadBytes);
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("offset and length must not be negative");
+        }
+        
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int window = (int) Math.max(0, Math.min(length, size - offset));
+            // Up to three bytes past the window finish a character cut by its end
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(0, Math.min(window + 3L, size - offset)));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            
+            // An offset inside a character starts at the next one
+            int start = 0;
+            while (start < Math.min(3, buffer.limit()) && isUtf8Continuation(buffer.get(start))) {
+                start++;
+            }
+            // A character cut by the end of the window is left for the next read
+            int end = Math.max(start, window);
+            while (end > start && end < buffer.limit() && isUtf8Continuation(buffer.get(end))) {
+                end--;
+            }
+            if (end == start && window > start) {
+                // The window is smaller than the character at its start; return that character whole
+                end = start + 1;
+                while (end < buffer.limit() && isUtf8Continuation(buffer.get(end))) {
+                    end++;
+                }
+            }
+            
+            long nextOffset = offset + end;
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("path", file.toString());
+            result.put("offset", offset + start);
+            result.put("length", end - start);
+            result.put("size", size);
+            result.put("nextOffset", nextOffset);
+            result.put("eof", nextOffset >= size);
+            result.put("content", StandardCharsets.UTF_8.decode(buffer.slice(start, end - start)).toString());
+            return result;
+        }
+    }
+    
+    private static boolean isUtf8Continuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+    
+    /**
+     * List a directory through a DirectoryStream that is always closed. With offset/limit
+     * a page is returned; either way at most max-list-entries names are held.
+     */
+    private Object listDirectory(Path dir, Map<String, Object> parameters) throws IOException {
+        int maxEntries = mcpProperties.getTools().getFilesystem().getMaxListEntries();
+        boolean paged = parameters.containsKey("offset") || parameters.containsKey("limit");
+        long offset = longParameter(parameters, "offset", 0);
+        int limit = (int) Math.min(longParameter(parameters, "limit", maxEntries), maxEntries);
+        
+        List<String> files = new ArrayList<>();
+        boolean hasMore = false;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            long index = 0;
+            for (Path entry : entries) {
+                if (index++ < offset) {
+                    continue;
+                }
+                if (files.size() == limit) {
+                    hasMore = true;
+                    break;
+                }
+                files.add(entry.getFileName().toString());
+            }
+        }
+        
+        if (!paged) {
+            if (hasMore) {
+                throw new IllegalArgumentException("Directory has more than " + maxEntries
+                        + " entries; use offset/limit to list it in pages");
+            }
+            return files;
+        }
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("path", dir.toString());
+        result.put("offset", offset);
+        result.put("entries", files);
+        result.put("hasMore", hasMore);
+        if (hasMore) {
+            result.put("nextOffset", offset + files.size());
+        }
+        return result;
+    }
+    
+    private static long longParameter(Map<String, Object> parameters, String name, long defaultValue) {
+        Object value = parameters.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        try {
+            return Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter '" + name + "' must be a number");
+        }
+    }
+    
+    /**
+     * Resolve a file for streaming, confined to the filesystem tool's root path
+     */
+    public Path resolveStreamableFile(String path) {
+        String rootPath = mcpProperties.getTools().getFilesystem().getRootPath();
+        if (rootPath == null) {
+            throw new IllegalStateException("Filesystem root path is not configured");
+        }
+        Path root = Paths.get(rootPath).toAbsolutePath().normalize();
+        Path file = root.resolve(path.startsWith("/") ? path.substring(1) : path).normalize();
+        if (!file.startsWith(root)) {
+            throw new IllegalArgumentException("Path is outside the filesystem root: " + path);
+        }
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("Not a file: " + path);
+        }
+        return file;
     }
     
     /**
@@ -132,44 +405,69 @@ public class McpService {
     }
     
     /**
-     * Execute code operations
+     * Execute code in a pooled sandbox worker
      */
     private Mono<Object> executeCodeTool(Map<String, Object> parameters) {
-        String code = (String) parameters.get("code");
-        String language = (String) parameters.get("language");
-        
-        // This would typically execute code in a sandboxed environment
-        return Mono.just(Map.of(
-            "language", language,
-            "output", "Code execution result for: " + language,
-            "executionTime", System.currentTimeMillis()
-        ));
+        return sandboxExecutor.execute((String) parameters.get("language"), (String) parameters.get("code"));
     }
     
     /**
-     * Execute database operations
+     * Run a read-only query against a configured datasource
      */
     private Mono<Object> executeDatabaseTool(Map<String, Object> parameters) {
-        String query = (String) parameters.get("query");
-        String database = (String) parameters.get("database");
-        
-        // This would typically execute database queries
-        return Mono.just(Map.of(
-            "database", database,
-            "query", query,
-            "result", "Database query executed successfully"
-        ));
+        return databaseQueryExecutor.execute((String) parameters.get("database"), (String) parameters.get("query"),
+                listParameter(parameters, "params"), intParameter(parameters, "maxRows"));
+    }
+    
+    /**
+     * Stream the rows of a database tool query in chunks. Parameters are
+     * validated like a tool call; a failure ends the stream with an error chunk.
+     */
+    public Flux<QueryResultChunk> streamDatabaseQuery(Map<String, Object> parameters) {
+        McpToolRegistry.RegisteredTool tool = toolRegistry.lookup("database");
+        if (tool == null) {
+            return Flux.just(QueryResultChunk.error("Tool not found: database"));
+        }
+        String violation = tool.validator().validate(parameters);
+        if (violation != null) {
+            return Flux.just(QueryResultChunk.error(violation));
+        }
+        return databaseQueryExecutor.stream((String) parameters.get("database"), (String) parameters.get("query"),
+                        listParameter(parameters, "params"), intParameter(parameters, "maxRows"))
+                .onErrorResume(error -> {
+                    log.warn("Database query failed: {}", error.toString());
+                    return Mono.just(QueryResultChunk.error(error.getMessage() != null
+                            ? error.getMessage() : error.getClass().getSimpleName()));
+                });
+    }
+    
+    private static Integer intParameter(Map<String, Object> parameters, String name) {
+        return parameters.get(name) instanceof Number number ? number.intValue() : null;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static List<Object> listParameter(Map<String, Object> parameters, String name) {
+        return (List<Object>) parameters.get(name);
+    }
+    
+    /**
+     * Batch execution limits
+     */
+    public McpProperties.Batch getBatchSettings() {
+        return mcpProperties.getBatch();
+    }
+    
+    /**
+     * Get tool result cache statistics
+     */
+    public Map<String, Object> getCacheStats() {
+        return toolResultCache.getStats();
     }
     
     /**
      * Check if MCP server is available
      */
     public Mono<Boolean> isMcpServerAvailable() {
-        return webClient.get()
-                .uri("/health")
-                .retrieve()
-                .toBodilessEntity()
-                .map(response -> true)
-                .onErrorReturn(false);
+        return Mono.just(mcpClient.isAvailable());
     }
 }
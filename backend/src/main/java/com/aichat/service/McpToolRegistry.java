@@ -0,0 +1,163 @@
+package com.aichat.service;
+
+import com.aichat.config.McpProperties;
+import com.aichat.model.McpTool;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The tools that can be called and the compiled validators for their
+ * parameters. Readers see an immutable snapshot; in remote mode it is
+ * replaced in the background whenever the server's tool list is fetched.
+ */
+@Component
+@Slf4j
+public class McpToolRegistry {
+
+    private final McpClient mcpClient;
+    private final McpProperties mcpProperties;
+    private final Map<String, McpTool> builtInTools;
+
+    private volatile Snapshot snapshot;
+    private Disposable refresher;
+
+    public McpToolRegistry(McpClient mcpClient, McpProperties mcpProperties) {
+        this.mcpClient = mcpClient;
+        this.mcpProperties = mcpProperties;
+        // Fail startup on missing or invalid built-in definitions
+        this.builtInTools = loadBuiltInTools(mcpProperties.getRegistry().getLocation());
+        this.snapshot = compile(List.copyOf(builtInTools.values()));
+    }
+
+    /**
+     * Fetch the remote tool list in the background, keeping the current
+     * snapshot whenever a fetch fails
+     */
+    @PostConstruct
+    void startRefreshing() {
+        if (mcpProperties.getServer().getMode() != McpProperties.Server.ExecutionMode.REMOTE) {
+            return;
+        }
+        Duration interval = mcpProperties.getRegistry().getRefreshInterval();
+        refresher = Flux.interval(Duration.ZERO, interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> refresh()
+                        .onErrorResume(error -> {
+                            log.warn("Could not refresh MCP tools from {}: {}", mcpProperties.getServer().getUrl(), error.toString());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (refresher != null) {
+            refresher.dispose();
+        }
+    }
+
+    /**
+     * Replace the snapshot with the server's current tool list
+     */
+    public Mono<Integer> refresh() {
+        return mcpClient.fetchTools().map(tools -> {
+            Snapshot next = compile(tools.stream().map(this::withBuiltInSchema).toList());
+            if (!next.byName().keySet().equals(snapshot.byName().keySet())) {
+                log.info("MCP tools are now {}", next.byName().keySet());
+            }
+            snapshot = next;
+            return tools.size();
+        });
+    }
+
+    /**
+     * All registered tools
+     */
+    public List<McpTool> getTools() {
+        return snapshot.tools();
+    }
+
+    /**
+     * A registered tool with its validator, or null when there is none by that name
+     */
+    public RegisteredTool lookup(String toolName) {
+        // The snapshot's map is immutable and rejects null keys
+        return toolName != null ? snapshot.byName().get(toolName) : null;
+    }
+
+    /**
+     * A tool the server lists without a schema keeps the built-in one for its name
+     */
+    private McpTool withBuiltInSchema(McpTool tool) {
+        // Listed tools are callable; the server does not report the flag
+        tool.setEnabled(true);
+        McpTool builtIn = builtInTools.get(tool.getName());
+        if (tool.getInputSchema() != null || builtIn == null) {
+            return tool;
+        }
+        McpTool merged = new McpTool(tool.getName(), tool.getDescription(), builtIn.getInputSchema(),
+                tool.getCapabilities() != null ? tool.getCapabilities() : builtIn.getCapabilities());
+        merged.setOutputSchema(tool.getOutputSchema());
+        merged.setParameters(tool.getParameters());
+        return merged;
+    }
+
+    /**
+     * Compile every schema up front. A tool with an invalid schema is left
+     * out rather than accepting parameters unchecked.
+     */
+    private static Snapshot compile(List<McpTool> tools) {
+        Map<String, RegisteredTool> byName = new LinkedHashMap<>();
+        for (McpTool tool : tools) {
+            if (tool.getName() == null) {
+                continue;
+            }
+            try {
+                byName.put(tool.getName(), new RegisteredTool(tool, ToolParameterValidator.compile(tool.getInputSchema())));
+            } catch (RuntimeException e) {
+                log.warn("Skipping MCP tool {} with an invalid input schema: {}", tool.getName(), e.getMessage());
+            }
+        }
+        return new Snapshot(Map.copyOf(byName), byName.values().stream().map(RegisteredTool::tool).toList());
+    }
+
+    private static Map<String, McpTool> loadBuiltInTools(String location) {
+        Resource resource = new DefaultResourceLoader().getResource(location);
+        ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        try (InputStream in = resource.getInputStream()) {
+            List<McpTool> tools = objectMapper.readValue(in, new TypeReference<List<McpTool>>() {});
+            Map<String, McpTool> byName = new LinkedHashMap<>();
+            for (McpTool tool : tools) {
+                tool.setEnabled(true);
+                ToolParameterValidator.compile(tool.getInputSchema());
+                byName.put(tool.getName(), tool);
+            }
+            return Collections.unmodifiableMap(byName);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read MCP tool definitions from " + location, e);
+        }
+    }
+
+    public record RegisteredTool(McpTool tool, ToolParameterValidator validator) {
+    }
+
+    private record Snapshot(Map<String, RegisteredTool> byName, List<McpTool> tools) {
+    }
+}
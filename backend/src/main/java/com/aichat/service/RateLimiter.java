@@ -0,0 +1,101 @@
+package com.aichat.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket per key, using the generic cell rate algorithm:
+ * each key holds only the time at which its bucket is full again, advanced
+ * with compare-and-set. A key whose bucket is full again is the same as one
+ * never seen, so idle keys are dropped once more than {@code maxKeys} are
+ * tracked without changing any decision. When every tracked key is busy, a
+ * new key is refused until one goes idle, so memory stays bounded.
+ */
+public class RateLimiter {
+
+    private final long emissionIntervalNanos;
+    private final long toleranceNanos;
+    private final int maxKeys;
+    private final ConcurrentMap<String, AtomicLong> theoreticalArrival = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final AtomicLong lastSweep = new AtomicLong();
+
+    /**
+     * @param rate    sustained permits per second
+     * @param burst   permits available at once to an idle key
+     * @param maxKeys keys tracked before idle ones are dropped
+     */
+    public RateLimiter(double rate, int burst, int maxKeys) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("Rate must be positive: " + rate);
+        }
+        this.emissionIntervalNanos = Math.max(1, (long) (1_000_000_000L / rate));
+        this.toleranceNanos = emissionIntervalNanos * (Math.max(1, burst) - 1);
+        this.maxKeys = Math.max(1, maxKeys);
+    }
+
+    /**
+     * Take a permit for a key
+     *
+     * @return 0 when admitted, otherwise the nanoseconds until a permit is available
+     */
+    public long tryAcquire(String key, long nowNanos) {
+        AtomicLong slot = theoreticalArrival.get(key);
+        if (slot == null) {
+            if (theoreticalArrival.size() >= maxKeys && sweep(nowNanos) >= maxKeys) {
+                return emissionIntervalNanos;
+            }
+            slot = theoreticalArrival.computeIfAbsent(key, k -> new AtomicLong(nowNanos));
+        }
+        while (true) {
+            long tat = slot.get();
+            long base = tat - nowNanos < 0 ? nowNanos : tat;
+            long wait = base - toleranceNanos - nowNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (slot.compareAndSet(tat, base + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Give back a permit taken by {@link #tryAcquire}, e.g. when a later
+     * check rejected the request it was taken for
+     */
+    public void release(String key) {
+        AtomicLong slot = theoreticalArrival.get(key);
+        if (slot != null) {
+            slot.addAndGet(-emissionIntervalNanos);
+        }
+    }
+
+    /**
+     * Number of keys currently tracked
+     */
+    public int size() {
+        return theoreticalArrival.size();
+    }
+
+    /**
+     * Drop keys whose bucket is full again, returning the keys left. One
+     * thread sweeps at a time, at most once per emission interval; the
+     * others see the size as it is.
+     */
+    private int sweep(long nowNanos) {
+        long last = lastSweep.get();
+        if (nowNanos - last >= emissionIntervalNanos && lastSweep.compareAndSet(last, nowNanos)
+                && sweeping.compareAndSet(false, true)) {
+            try {
+                // A key taken at the same moment may lose that permit's record, granting it one extra
+                theoreticalArrival.values().removeIf(slot -> slot.get() - nowNanos <= 0);
+            } finally {
+                sweeping.set(false);
+            }
+        }
+        return theoreticalArrival.size();
+    }
+}
@@ -0,0 +1,139 @@
+package com.aichat.service;
+
+import com.aichat.config.ChatProperties;
+import com.aichat.model.ResponseRuleSet;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Picks the contextual reply for a message from configurable keyword rules.
+ * The rules are compiled into a single automaton, so matching costs one
+ * pass over the message however many rules there are. A rules file on the
+ * filesystem is reloaded when it changes; requests always see a complete,
+ * immutable rule set.
+ */
+@Component
+@Slf4j
+public class ResponseRuleEngine {
+
+    private final ChatProperties.ResponseRules settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Resource resource;
+
+    private volatile CompiledRules rules;
+    private volatile long lastModified;
+    private Disposable reloader;
+
+    public ResponseRuleEngine(ChatProperties chatProperties) {
+        this.settings = chatProperties.getResponseRules();
+        this.resource = new DefaultResourceLoader().getResource(settings.getLocation());
+        // Fail startup on a missing or invalid rule set
+        this.rules = load();
+    }
+
+    /**
+     * Poll a rules file on the filesystem for changes
+     */
+    @PostConstruct
+    void startReloading() {
+        Duration interval = settings.getReloadInterval();
+        if (interval == null || interval.isZero() || interval.isNegative() || !resource.isFile()) {
+            return;
+        }
+        reloader = Flux.interval(interval, interval)
+                .onBackpressureDrop()
+                .subscribe(tick -> reloadIfModified());
+    }
+
+    @PreDestroy
+    void stop() {
+        if (reloader != null) {
+            reloader.dispose();
+        }
+    }
+
+    /**
+     * The reply of the first rule with a keyword in the message, or the default reply
+     */
+    public String reply(CharSequence message) {
+        String reply = matchingReply(message);
+        return reply != null ? reply : rules.defaultReply;
+    }
+
+    /**
+     * The reply of the first rule with a keyword in the message, or null when none matches
+     */
+    public String matchingReply(CharSequence message) {
+        CompiledRules current = rules;
+        int rule = current.automaton.match(message);
+        return rule >= 0 ? current.replies.get(rule) : null;
+    }
+
+    /**
+     * Reload the rules now, keeping the current ones if the new set is invalid
+     */
+    public boolean reload() {
+        try {
+            rules = load();
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Keeping previous response rules, could not load {}: {}", settings.getLocation(), e.getMessage());
+            return false;
+        }
+    }
+
+    public int ruleCount() {
+        return rules.replies.size();
+    }
+
+    private void reloadIfModified() {
+        try {
+            if (resource.lastModified() != lastModified) {
+                reload();
+            }
+        } catch (IOException e) {
+            log.warn("Could not check response rules at {}: {}", settings.getLocation(), e.getMessage());
+        }
+    }
+
+    private CompiledRules load() {
+        ResponseRuleSet ruleSet;
+        try (InputStream in = resource.getInputStream()) {
+            if (resource.isFile()) {
+                lastModified = resource.lastModified();
+            }
+            ruleSet = objectMapper.readValue(in, ResponseRuleSet.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read response rules from " + settings.getLocation(), e);
+        }
+
+        List<ResponseRuleSet.Rule> ruleList = ruleSet.getRules() != null ? ruleSet.getRules() : List.of();
+        for (ResponseRuleSet.Rule rule : ruleList) {
+            if (rule.getReply() == null || rule.getKeywords() == null || rule.getKeywords().isEmpty()) {
+                throw new IllegalStateException("Response rule " + rule.getName() + " needs keywords and a reply");
+            }
+        }
+        if (ruleSet.getDefaultReply() == null) {
+            throw new IllegalStateException("Response rules need a defaultReply");
+        }
+
+        KeywordAutomaton automaton = new KeywordAutomaton(ruleList.stream().map(ResponseRuleSet.Rule::getKeywords).toList());
+        List<String> replies = ruleList.stream().map(ResponseRuleSet.Rule::getReply).toList();
+        log.info("Loaded {} response rules ({} automaton states) from {}", replies.size(), automaton.stateCount(), settings.getLocation());
+        return new CompiledRules(automaton, replies, ruleSet.getDefaultReply());
+    }
+
+    private record CompiledRules(KeywordAutomaton automaton, List<String> replies, String defaultReply) {
+    }
+}
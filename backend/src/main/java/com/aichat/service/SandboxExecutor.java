@@ -0,0 +1,389 @@
+package com.aichat.service;
+
+import com.aichat.config.McpProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs code for the code_execution tool in pools of pre-started interpreter
+ * processes, so a run does not pay for starting one. Each worker runs in its
+ * own scratch directory with a minimal environment; its script enforces the
+ * per-run CPU and memory limits and the wall-clock limit is enforced here by
+ * killing the worker and its children. No two runs share an interpreter: a
+ * worker either runs each request in a fresh child of its own, or is
+ * single-use and replaced after every run. Workers are also replaced after a
+ * number of runs or after any run that leaves them in doubt. Runs wait for a
+ * worker in a bounded queue; beyond it they are rejected.
+ */
+@Component
+@Slf4j
+public class SandboxExecutor {
+
+    /** Time allowed for the watchdog to kill a worker once a run is over its deadline */
+    private static final Duration WATCHDOG_GRACE = Duration.ofSeconds(1);
+    private static final TypeReference<Map<String, Object>> JSON_OBJECT = new TypeReference<>() {};
+
+    private final McpProperties mcpProperties;
+    private final McpProperties.CodeExecutionSettings settings;
+    private final Scheduler blockingScheduler;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, WorkerPool> pools = new LinkedHashMap<>();
+
+    private Path scriptDirectory;
+
+    public SandboxExecutor(McpProperties mcpProperties, Scheduler blockingScheduler) {
+        this.mcpProperties = mcpProperties;
+        this.settings = mcpProperties.getTools().getCodeExecution();
+        this.blockingScheduler = blockingScheduler;
+    }
+
+    /**
+     * Start the workers of every language. Code runs in-process only in
+     * local mode; a language whose workers cannot start stays unavailable.
+     */
+    @PostConstruct
+    void start() throws IOException {
+        if (mcpProperties.getServer().getMode() != McpProperties.Server.ExecutionMode.LOCAL
+                || !settings.isEnabled() || settings.getLanguages().isEmpty()) {
+            return;
+        }
+        scriptDirectory = Files.createTempDirectory("sandbox-scripts");
+        settings.getLanguages().forEach((name, language) -> {
+            try {
+                WorkerPool pool = new WorkerPool(name, command(name, language), language.getWorkers(),
+                        language.isSingleUse() ? 1 : settings.getMaxUsesPerWorker());
+                pool.fill();
+                pools.put(name, pool);
+                log.info("Started {} {} sandbox workers", language.getWorkers(), name);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Sandbox for {} is unavailable: {}", name, e.toString());
+            }
+        });
+    }
+
+    @PreDestroy
+    void stop() throws IOException {
+        pools.values().forEach(WorkerPool::close);
+        if (scriptDirectory != null) {
+            FileSystemUtils.deleteRecursively(scriptDirectory);
+        }
+    }
+
+    /**
+     * Languages with running workers
+     */
+    public List<String> getLanguages() {
+        return List.copyOf(pools.keySet());
+    }
+
+    /**
+     * The longest a run can take, from queueing to its worker being killed
+     */
+    public Duration deadline() {
+        return settings.getQueueTimeout().plus(runTimeout()).plus(WATCHDOG_GRACE);
+    }
+
+    /**
+     * Run code in a worker of the language. The result reports the time
+     * spent waiting for a worker and running separately.
+     */
+    public Mono<Object> execute(String language, String code) {
+        WorkerPool pool = language != null ? pools.get(language.toLowerCase()) : null;
+        if (pool == null) {
+            return Mono.error(new IllegalArgumentException("Unsupported language: " + language
+                    + "; available: " + pools.keySet()));
+        }
+        return Mono.defer(() -> {
+            // Admission happens on the caller, so a full queue is rejected without a thread hop
+            if (!pool.tryAdmit()) {
+                return Mono.error(new RejectedExecutionException("Too many " + language + " runs queued"));
+            }
+            AtomicBoolean cancelled = new AtomicBoolean();
+            return Mono.<Object>fromCallable(() -> pool.execute(code, cancelled))
+                    .subscribeOn(blockingScheduler)
+                    .doOnCancel(() -> cancelled.set(true))
+                    .doFinally(signal -> pool.leave());
+        });
+    }
+
+    private Duration runTimeout() {
+        return settings.getTimeout() != null ? settings.getTimeout() : mcpProperties.getServer().getTimeout();
+    }
+
+    private List<String> command(String name, McpProperties.Language language) throws IOException {
+        if (language.getCommand().isEmpty() || language.getScript() == null) {
+            throw new IllegalArgumentException("A command and a script are required");
+        }
+        Resource resource = new DefaultResourceLoader().getResource(language.getScript());
+        Path script = scriptDirectory.resolve(name + "-" + resource.getFilename());
+        try (InputStream in = resource.getInputStream()) {
+            Files.copy(in, script);
+        }
+        List<String> command = new ArrayList<>(language.getCommand());
+        command.add(script.toString());
+        return command;
+    }
+
+    /**
+     * Workers of one language with the queue in front of them
+     */
+    private final class WorkerPool {
+
+        private final String language;
+        private final List<String> command;
+        private final int size;
+        private final int maxUses;
+        private final BlockingQueue<Worker> idle;
+        /** Runs waiting for a worker or running, bounded by the pool size plus the queue */
+        private final AtomicInteger admitted = new AtomicInteger();
+        private volatile boolean closed;
+
+        WorkerPool(String language, List<String> command, int size, int maxUses) {
+            this.language = language;
+            this.command = command;
+            this.size = Math.max(1, size);
+            this.maxUses = maxUses;
+            this.idle = new ArrayBlockingQueue<>(this.size);
+        }
+
+        void fill() throws IOException {
+            for (int i = 0; i < size; i++) {
+                idle.add(new Worker(language, command));
+            }
+        }
+
+        boolean tryAdmit() {
+            if (admitted.incrementAndGet() > size + settings.getMaxQueued()) {
+                admitted.decrementAndGet();
+                return false;
+            }
+            return true;
+        }
+
+        void leave() {
+            admitted.decrementAndGet();
+        }
+
+        Map<String, Object> execute(String code, AtomicBoolean cancelled) throws InterruptedException {
+            long queuedAt = System.nanoTime();
+            Worker worker = idle.poll(settings.getQueueTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            if (worker == null) {
+                throw new RejectedExecutionException("No " + language + " worker became free within "
+                        + settings.getQueueTimeout().toMillis() + " ms");
+            }
+            long queueWait = System.nanoTime() - queuedAt;
+            if (cancelled.get()) {
+                release(worker, true);
+                throw new IllegalStateException("Run was cancelled while queued");
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("language", language);
+            boolean healthy = false;
+            long startedAt = System.nanoTime();
+            try {
+                healthy = worker.run(code, result);
+            } finally {
+                release(worker, healthy);
+            }
+            result.put("queueWaitMs", TimeUnit.NANOSECONDS.toMillis(queueWait));
+            result.put("executionMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            return result;
+        }
+
+        /**
+         * Return a worker to the pool, or replace it in the background when
+         * it is used up or may have been left in a bad state
+         */
+        private void release(Worker worker, boolean healthy) {
+            if (healthy && worker.uses < maxUses && !closed) {
+                idle.offer(worker);
+                return;
+            }
+            worker.destroy();
+            if (closed) {
+                return;
+            }
+            blockingScheduler.schedule(() -> {
+                try {
+                    Worker replacement = new Worker(language, command);
+                    if (closed || !idle.offer(replacement)) {
+                        replacement.destroy();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.error("Could not start a {} sandbox worker", language, e);
+                }
+            });
+        }
+
+        void close() {
+            closed = true;
+            Worker worker;
+            while ((worker = idle.poll()) != null) {
+                worker.destroy();
+            }
+        }
+    }
+
+    /**
+     * One interpreter process speaking JSON lines over its stdin and stdout
+     */
+    private final class Worker {
+
+        private final Process process;
+        private final Path directory;
+        private final OutputStream requests;
+        private final InputStream responses;
+        int uses;
+
+        Worker(String language, List<String> command) throws IOException {
+            this.directory = Files.createTempDirectory("sandbox-" + language);
+            ProcessBuilder builder = new ProcessBuilder(command)
+                    .directory(directory.toFile())
+                    .redirectError(ProcessBuilder.Redirect.DISCARD);
+            Map<String, String> environment = builder.environment();
+            String path = environment.get("PATH");
+            environment.clear();
+            environment.put("PATH", path != null ? path : "/usr/local/bin:/usr/bin:/bin");
+            environment.put("HOME", directory.toString());
+            environment.put("SANDBOX_MEMORY_BYTES", Long.toString(settings.getMemory().toBytes()));
+            try {
+                this.process = builder.start();
+            } catch (IOException e) {
+                FileSystemUtils.deleteRecursively(directory);
+                throw e;
+            }
+            this.requests = process.getOutputStream();
+            this.responses = process.getInputStream();
+
+            Disposable watchdog = killAfter(runTimeout(), new AtomicBoolean());
+            try {
+                byte[] ready = readLine();
+                if (ready == null) {
+                    throw new IOException("Worker exited on startup with code " + process.waitFor());
+                }
+            } catch (IOException | InterruptedException e) {
+                destroy();
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("Could not start " + language + " worker: " + e.getMessage(), e);
+            } finally {
+                watchdog.dispose();
+            }
+        }
+
+        /**
+         * Run code and fill in the result. Returns whether the worker can
+         * take another run.
+         */
+        boolean run(String code, Map<String, Object> result) {
+            uses++;
+            AtomicBoolean killed = new AtomicBoolean();
+            Disposable watchdog = killAfter(runTimeout(), killed);
+            try {
+                Map<String, Object> request = Map.of(
+                        "code", code,
+                        "cpuSeconds", settings.getCpuTime().toMillis() / 1000.0,
+                        "maxOutput", settings.getMaxOutput().toBytes());
+                requests.write(objectMapper.writeValueAsBytes(request));
+                requests.write('\n');
+                requests.flush();
+
+                byte[] line = readLine();
+                if (line != null) {
+                    Map<String, Object> response = objectMapper.readValue(line, JSON_OBJECT);
+                    result.putAll(response);
+                    // Limits apply to the run, not the worker, so a worker that answered is intact
+                    return true;
+                }
+            } catch (IOException e) {
+                log.debug("Sandbox worker failed: {}", e.toString());
+            } finally {
+                watchdog.dispose();
+            }
+
+            if (killed.get()) {
+                result.put("status", "timeout");
+                result.put("error", "Wall-clock limit of " + runTimeout().toMillis() + " ms exceeded");
+            } else {
+                result.put("status", "crashed");
+                result.put("error", "Worker exited unexpectedly, possibly over its memory limit");
+            }
+            result.put("exitCode", -1);
+            return false;
+        }
+
+        private Disposable killAfter(Duration timeout, AtomicBoolean killed) {
+            return Schedulers.parallel().schedule(() -> {
+                killed.set(true);
+                kill();
+            }, timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Read one response line, failing on one longer than any valid response
+         */
+        private byte[] readLine() throws IOException {
+            // Both outputs and the error, each at most max-output characters, JSON-escaped
+            long limit = 20 * settings.getMaxOutput().toBytes() + 4096;
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = responses.read()) != -1) {
+                if (b == '\n') {
+                    return line.toByteArray();
+                }
+                if (line.size() >= limit) {
+                    throw new IOException("Worker response is too long");
+                }
+                line.write(b);
+            }
+            return null;
+        }
+
+        /**
+         * Kill the worker and whatever its runs started
+         */
+        private void kill() {
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+        }
+
+        void destroy() {
+            kill();
+            try {
+                FileSystemUtils.deleteRecursively(directory);
+            } catch (IOException e) {
+                log.debug("Could not delete sandbox directory {}: {}", directory, e.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.aichat.service;
+
+import com.aichat.config.ChatProperties;
+import com.aichat.repository.ChatMessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deletes sessions whose newest message is older than the TTL, in the
+ * database and in the archive. Sweeps run on the blocking scheduler in
+ * batches of sessions, one delete statement per batch, with a cap on
+ * batches per sweep so a large backlog is worked off over several sweeps
+ * instead of one long one.
+ */
+@Component
+@Slf4j
+public class SessionExpiry {
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final ChatService chatService;
+    private final ChatMetrics chatMetrics;
+    private final Scheduler blockingScheduler;
+    private final ChatProperties.Expiry settings;
+
+    private Disposable sweeper;
+
+    public SessionExpiry(ChatMessageRepository chatMessageRepository,
+                         ChatService chatService,
+                         ChatMetrics chatMetrics,
+                         Scheduler blockingScheduler,
+                         ChatProperties chatProperties) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.chatService = chatService;
+        this.chatMetrics = chatMetrics;
+        this.blockingScheduler = blockingScheduler;
+        this.settings = chatProperties.getExpiry();
+    }
+
+    @PostConstruct
+    void start() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        sweeper = Flux.interval(settings.getSweepInterval(), settings.getSweepInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> Mono.fromCallable(this::sweep)
+                        .subscribeOn(blockingScheduler)
+                        .onErrorResume(error -> {
+                            log.error("Session expiry sweep failed", error);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (sweeper != null) {
+            sweeper.dispose();
+        }
+    }
+
+    /**
+     * Delete up to the per-sweep limit of expired sessions
+     */
+    public SweepResult sweep() {
+        long start = System.nanoTime();
+        LocalDateTime cutoff = LocalDateTime.now().minus(settings.getTtl());
+        int batchSize = Math.max(1, settings.getBatchSize());
+        int sessions = 0;
+        int messages = 0;
+        int batch = 0;
+        for (; batch < settings.getMaxBatchesPerSweep(); batch++) {
+            // Always the first page: the previous batch is gone
+            List<String> expired = chatMessageRepository.findIdleSessionIds(cutoff, PageRequest.of(0, batchSize));
+            if (expired.isEmpty()) {
+                break;
+            }
+            messages += chatService.expireSessions(expired, cutoff);
+            sessions += expired.size();
+            if (expired.size() < batchSize) {
+                break;
+            }
+        }
+
+        // Archived sessions with nothing left in the database; those that are active again are kept
+        List<String> archived = chatMessageRepository.findIdleArchivedSessionIds(cutoff);
+        for (int from = 0; from < archived.size() && batch < settings.getMaxBatchesPerSweep(); from += batchSize, batch++) {
+            List<String> candidates = archived.subList(from, Math.min(archived.size(), from + batchSize));
+            List<String> expired = new ArrayList<>(candidates);
+            expired.removeAll(chatMessageRepository.findActiveSessionIds(candidates, cutoff));
+            if (!expired.isEmpty()) {
+                messages += chatService.expireSessions(expired, cutoff);
+                sessions += expired.size();
+            }
+        }
+
+        Duration took = Duration.ofNanos(System.nanoTime() - start);
+        chatMetrics.recordExpirySweep(messages, took);
+        if (sessions > 0) {
+            log.info("Expired {} sessions ({} messages) idle since before {} in {} ms", sessions, messages, cutoff, took.toMillis());
+        } else {
+            log.debug("No sessions to expire ({} ms)", took.toMillis());
+        }
+        return new SweepResult(sessions, messages, took);
+    }
+
+    public record SweepResult(int sessions, int messages, Duration took) {
+    }
+}
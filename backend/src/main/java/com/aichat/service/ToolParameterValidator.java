@@ -0,0 +1,316 @@
+package com.aichat.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Checks tool parameters against a JSON Schema that is compiled once into a
+ * tree of checks. Supports the subset tool schemas use: type, enum, const,
+ * minimum/maximum, minLength/maxLength, pattern, items, minItems/maxItems,
+ * properties, required, additionalProperties and if/then/else. Other
+ * keywords are ignored.
+ */
+public final class ToolParameterValidator {
+
+    /** Accepts any parameters, for tools without a schema */
+    public static final ToolParameterValidator ACCEPT_ALL = new ToolParameterValidator(null);
+
+    private final Check root;
+
+    private ToolParameterValidator(Check root) {
+        this.root = root;
+    }
+
+    /**
+     * Compile a schema, failing on keywords with malformed values
+     */
+    public static ToolParameterValidator compile(Map<String, Object> schema) {
+        if (schema == null || schema.isEmpty()) {
+            return ACCEPT_ALL;
+        }
+        return new ToolParameterValidator(compileNode(schema));
+    }
+
+    /**
+     * The first violation found, or null when the parameters are valid
+     */
+    public String validate(Map<String, Object> parameters) {
+        return root != null ? root.check(parameters, "") : null;
+    }
+
+    @FunctionalInterface
+    private interface Check {
+        String check(Object value, String path);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Check compileNode(Object node) {
+        if (node instanceof Boolean allowed) {
+            return allowed ? null : (value, path) -> describe(path) + " is not allowed";
+        }
+        if (!(node instanceof Map<?, ?>)) {
+            throw new IllegalArgumentException("Schema must be an object or a boolean: " + node);
+        }
+        Map<String, Object> schema = (Map<String, Object>) node;
+        List<Check> checks = new ArrayList<>();
+
+        Object type = schema.get("type");
+        if (type != null) {
+            checks.add(typeCheck(type instanceof Collection<?> types ? types : List.of(type)));
+        }
+        if (schema.get("enum") instanceof Collection<?> allowed) {
+            checks.add(enumCheck(allowed));
+        }
+        if (schema.containsKey("const")) {
+            checks.add(enumCheck(List.of(schema.get("const"))));
+        }
+        addRangeChecks(schema, checks);
+        addStringChecks(schema, checks);
+        addArrayChecks(schema, checks);
+        addObjectChecks(schema, checks);
+        addConditionalCheck(schema, checks);
+
+        return switch (checks.size()) {
+            case 0 -> null;
+            case 1 -> checks.get(0);
+            default -> {
+                Check[] all = checks.toArray(Check[]::new);
+                yield (value, path) -> {
+                    for (Check check : all) {
+                        String violation = check.check(value, path);
+                        if (violation != null) {
+                            return violation;
+                        }
+                    }
+                    return null;
+                };
+            }
+        };
+    }
+
+    private static Check typeCheck(Collection<?> types) {
+        Set<JsonType> allowed = new HashSet<>();
+        for (Object type : types) {
+            allowed.add(JsonType.parse(String.valueOf(type)));
+        }
+        String expected = String.join(" or ", types.stream().map(String::valueOf).toList());
+        return (value, path) -> {
+            for (JsonType type : allowed) {
+                if (type.matches(value)) {
+                    return null;
+                }
+            }
+            return describe(path) + " must be " + expected;
+        };
+    }
+
+    private static Check enumCheck(Collection<?> allowed) {
+        List<Object> values = new ArrayList<>(allowed);
+        return (value, path) -> {
+            if (value == null) {
+                return null;
+            }
+            for (Object candidate : values) {
+                if (sameValue(candidate, value)) {
+                    return null;
+                }
+            }
+            return describe(path) + " must be one of " + values;
+        };
+    }
+
+    private static void addRangeChecks(Map<String, Object> schema, List<Check> checks) {
+        if (schema.get("minimum") instanceof Number minimum) {
+            double bound = minimum.doubleValue();
+            checks.add((value, path) -> value instanceof Number number && number.doubleValue() < bound
+                    ? describe(path) + " must be at least " + minimum : null);
+        }
+        if (schema.get("maximum") instanceof Number maximum) {
+            double bound = maximum.doubleValue();
+            checks.add((value, path) -> value instanceof Number number && number.doubleValue() > bound
+                    ? describe(path) + " must be at most " + maximum : null);
+        }
+    }
+
+    private static void addStringChecks(Map<String, Object> schema, List<Check> checks) {
+        if (schema.get("minLength") instanceof Number minLength) {
+            int bound = minLength.intValue();
+            checks.add((value, path) -> value instanceof String text && text.length() < bound
+                    ? describe(path) + " must be at least " + bound + " characters" : null);
+        }
+        if (schema.get("maxLength") instanceof Number maxLength) {
+            int bound = maxLength.intValue();
+            checks.add((value, path) -> value instanceof String text && text.length() > bound
+                    ? describe(path) + " must be at most " + bound + " characters" : null);
+        }
+        if (schema.get("pattern") instanceof String regex) {
+            Pattern pattern = Pattern.compile(regex);
+            checks.add((value, path) -> value instanceof String text && !pattern.matcher(text).find()
+                    ? describe(path) + " must match " + regex : null);
+        }
+    }
+
+    private static void addArrayChecks(Map<String, Object> schema, List<Check> checks) {
+        if (schema.get("minItems") instanceof Number minItems) {
+            int bound = minItems.intValue();
+            checks.add((value, path) -> value instanceof List<?> list && list.size() < bound
+                    ? describe(path) + " must have at least " + bound + " items" : null);
+        }
+        if (schema.get("maxItems") instanceof Number maxItems) {
+            int bound = maxItems.intValue();
+            checks.add((value, path) -> value instanceof List<?> list && list.size() > bound
+                    ? describe(path) + " must have at most " + bound + " items" : null);
+        }
+        if (schema.containsKey("items")) {
+            Check items = compileNode(schema.get("items"));
+            if (items != null) {
+                checks.add((value, path) -> {
+                    if (!(value instanceof List<?> list)) {
+                        return null;
+                    }
+                    for (int i = 0; i < list.size(); i++) {
+                        String violation = items.check(list.get(i), path + "[" + i + "]");
+                        if (violation != null) {
+                            return violation;
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void addObjectChecks(Map<String, Object> schema, List<Check> checks) {
+        if (schema.get("required") instanceof Collection<?> required && !required.isEmpty()) {
+            String[] names = required.stream().map(String::valueOf).toArray(String[]::new);
+            checks.add((value, path) -> {
+                if (!(value instanceof Map<?, ?> object)) {
+                    return null;
+                }
+                for (String name : names) {
+                    if (object.get(name) == null) {
+                        return describe(child(path, name)) + " is required";
+                    }
+                }
+                return null;
+            });
+        }
+
+        Map<String, Object> properties = schema.get("properties") instanceof Map<?, ?> declared
+                ? (Map<String, Object>) declared : Map.of();
+        List<String> names = new ArrayList<>();
+        List<Check> propertyChecks = new ArrayList<>();
+        properties.forEach((name, propertySchema) -> {
+            Check check = compileNode(propertySchema);
+            if (check != null) {
+                names.add(name);
+                propertyChecks.add(check);
+            }
+        });
+        if (!names.isEmpty()) {
+            String[] propertyNames = names.toArray(String[]::new);
+            Check[] propertyCheckArray = propertyChecks.toArray(Check[]::new);
+            checks.add((value, path) -> {
+                if (!(value instanceof Map<?, ?> object)) {
+                    return null;
+                }
+                for (int i = 0; i < propertyNames.length; i++) {
+                    Object property = object.get(propertyNames[i]);
+                    if (property != null) {
+                        String violation = propertyCheckArray[i].check(property, child(path, propertyNames[i]));
+                        if (violation != null) {
+                            return violation;
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+
+        if (schema.containsKey("additionalProperties")) {
+            Check additional = compileNode(schema.get("additionalProperties"));
+            if (additional != null) {
+                Set<String> known = Set.copyOf(properties.keySet());
+                checks.add((value, path) -> {
+                    if (!(value instanceof Map<?, ?> object)) {
+                        return null;
+                    }
+                    for (Map.Entry<?, ?> entry : object.entrySet()) {
+                        String name = String.valueOf(entry.getKey());
+                        if (!known.contains(name)) {
+                            String violation = additional.check(entry.getValue(), child(path, name));
+                            if (violation != null) {
+                                return violation;
+                            }
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+    }
+
+    private static void addConditionalCheck(Map<String, Object> schema, List<Check> checks) {
+        if (!schema.containsKey("if")) {
+            return;
+        }
+        Check condition = compileNode(schema.get("if"));
+        Check then = schema.containsKey("then") ? compileNode(schema.get("then")) : null;
+        Check otherwise = schema.containsKey("else") ? compileNode(schema.get("else")) : null;
+        if (then == null && otherwise == null) {
+            return;
+        }
+        checks.add((value, path) -> {
+            Check branch = condition == null || condition.check(value, path) == null ? then : otherwise;
+            return branch != null ? branch.check(value, path) : null;
+        });
+    }
+
+    private static boolean sameValue(Object expected, Object actual) {
+        if (expected instanceof Number a && actual instanceof Number b) {
+            return a.doubleValue() == b.doubleValue();
+        }
+        return expected != null && expected.equals(actual);
+    }
+
+    private static String child(String path, String name) {
+        return path.isEmpty() ? name : path + "." + name;
+    }
+
+    private static String describe(String path) {
+        return path.isEmpty() ? "Parameters" : "Parameter '" + path + "'";
+    }
+
+    private enum JsonType {
+        OBJECT, ARRAY, STRING, INTEGER, NUMBER, BOOLEAN, NULL;
+
+        static JsonType parse(String name) {
+            try {
+                return valueOf(name.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown schema type: " + name);
+            }
+        }
+
+        boolean matches(Object value) {
+            return switch (this) {
+                case OBJECT -> value instanceof Map<?, ?>;
+                case ARRAY -> value instanceof List<?>;
+                case STRING -> value instanceof String;
+                case INTEGER -> value instanceof Integer || value instanceof Long || value instanceof Short
+                        || value instanceof Byte || value instanceof java.math.BigInteger
+                        || (value instanceof Number number && number.doubleValue() == Math.rint(number.doubleValue())
+                            && !Double.isInfinite(number.doubleValue()));
+                case NUMBER -> value instanceof Number;
+                case BOOLEAN -> value instanceof Boolean;
+                case NULL -> value == null;
+            };
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.aichat.service;
+
+import com.aichat.config.McpProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Size-bounded, TTL-based cache for results of read-only MCP tool calls.
+ * Concurrent identical calls that miss the cache share a single execution.
+ */
+@Component
+@Slf4j
+public class ToolResultCache {
+
+    private final McpProperties.Cache settings;
+    private final ObjectMapper keyMapper;
+    private final Map<String, Entry> entries;
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /** Bumped on every invalidation so loads that started earlier are not stored */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ToolResultCache(McpProperties mcpProperties) {
+        this.settings = mcpProperties.getCache();
+        this.keyMapper = new ObjectMapper().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+        int maxEntries = settings.getMaxEntries();
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Return a cached result, or run the loader once for all concurrent
+     * callers asking for the same tool call and cache what it returns
+     */
+    public Mono<Object> get(String toolName, Map<String, Object> parameters, Duration ttl, Supplier<Mono<Object>> loader) {
+        if (!settings.isEnabled() || ttl == null || ttl.isZero() || ttl.isNegative()) {
+            return loader.get();
+        }
+
+        String key = key(toolName, parameters);
+        if (key == null) {
+            return loader.get();
+        }
+
+        return Mono.defer(() -> {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt - System.nanoTime() > 0) {
+                    hits.increment();
+                    return Mono.just(entry.value);
+                }
+                entries.remove(key, entry);
+            }
+
+            CompletableFuture<Object> pending = new CompletableFuture<>();
+            CompletableFuture<Object> existing = inFlight.putIfAbsent(key, pending);
+            if (existing != null) {
+                collapsed.increment();
+                return Mono.fromFuture(existing, true);
+            }
+
+            misses.increment();
+            long startGeneration = generation.get();
+            String path = "filesystem".equals(toolName) ? normalizePath(parameters.get("path")) : null;
+            Mono.defer(loader).subscribe(
+                value -> {
+                    if (generation.get() == startGeneration) {
+                        entries.put(key, new Entry(value, System.nanoTime() + ttl.toNanos(), path));
+                    }
+                    inFlight.remove(key, pending);
+                    pending.complete(value);
+                },
+                error -> {
+                    inFlight.remove(key, pending);
+                    pending.completeExceptionally(error);
+                },
+                () -> {
+                    if (!pending.isDone()) {
+                        inFlight.remove(key, pending);
+                        pending.complete(null);
+                    }
+                });
+            return Mono.fromFuture(pending, true);
+        });
+    }
+
+    /**
+     * Drop cached filesystem results for a path and for listings of its parent directory
+     */
+    public void invalidatePath(Object rawPath) {
+        String path = normalizePath(rawPath);
+        if (path == null) {
+            return;
+        }
+        Path parent = Paths.get(path).getParent();
+        String parentPath = parent != null ? parent.toString() : null;
+
+        generation.incrementAndGet();
+        synchronized (entries) {
+            entries.values().removeIf(entry -> path.equals(entry.path) || (parentPath != null && parentPath.equals(entry.path)));
+        }
+    }
+
+    /**
+     * Hit rate and size statistics
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long collapsedCount = collapsed.sum();
+        long total = hitCount + missCount + collapsedCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", settings.isEnabled());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("collapsed", collapsedCount);
+        stats.put("hitRate", total == 0 ? 0.0 : (double) (hitCount + collapsedCount) / total);
+        stats.put("evictions", evictions.sum());
+        stats.put("size", entries.size());
+        stats.put("maxEntries", settings.getMaxEntries());
+        stats.put("inFlight", inFlight.size());
+        return stats;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long collapsedCount() {
+        return collapsed.sum();
+    }
+
+    private String key(String toolName, Map<String, Object> parameters) {
+        Map<String, Object> normalized = new TreeMap<>(parameters);
+        if ("filesystem".equals(toolName) && normalized.containsKey("path")) {
+            normalized.put("path", normalizePath(normalized.get("path")));
+        }
+        try {
+            return toolName + ":" + keyMapper.writeValueAsString(normalized);
+        } catch (JsonProcessingException e) {
+            log.debug("Tool parameters are not cacheable: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static String normalizePath(Object rawPath) {
+        if (!(rawPath instanceof String path)) {
+            return null;
+        }
+        try {
+            return Paths.get(path).toAbsolutePath().normalize().toString();
+        } catch (RuntimeException e) {
+            return path;
+        }
+    }
+
+    private record Entry(Object value, long expiresAt, String path) {
+    }
+}
@@ -0,0 +1,34 @@
+-- Embedded sample database for the MCP database tool. Runs once at startup
+-- as its owner; queries run as the read-only user created at the end.
+
+-- Keep the in-memory database when the init connection closes
+SET DB_CLOSE_DELAY -1;
+
+CREATE TABLE IF NOT EXISTS products (
+    id INT PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    category VARCHAR(50) NOT NULL,
+    price DECIMAL(10, 2) NOT NULL
+);
+
+INSERT INTO products
+SELECT X, 'Product ' || X,
+       CASE MOD(X, 4) WHEN 0 THEN 'books' WHEN 1 THEN 'games' WHEN 2 THEN 'tools' ELSE 'garden' END,
+       CAST(5 + MOD(X * 37, 200) + MOD(X, 100) / 100.0 AS DECIMAL(10, 2))
+FROM SYSTEM_RANGE(1, 200);
+
+CREATE TABLE IF NOT EXISTS orders (
+    id INT PRIMARY KEY,
+    product_id INT NOT NULL REFERENCES products (id),
+    quantity INT NOT NULL,
+    ordered_at TIMESTAMP NOT NULL
+);
+
+INSERT INTO orders
+SELECT X, 1 + MOD(X * 7, 200), 1 + MOD(X, 5), DATEADD('MINUTE', -X * 13, TIMESTAMP '2024-06-01 00:00:00')
+FROM SYSTEM_RANGE(1, 50000);
+
+CREATE INDEX IF NOT EXISTS orders_product ON orders (product_id);
+
+CREATE USER IF NOT EXISTS reader PASSWORD 'reader';
+GRANT SELECT ON SCHEMA PUBLIC TO reader;
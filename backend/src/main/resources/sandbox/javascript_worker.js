@@ -0,0 +1,72 @@
+'use strict';
+// Sandbox worker: runs the code of one JSON request line in a fresh V8
+// context and answers with one JSON line. The code gets a console whose
+// output is captured, and no require or process. A V8 context does not keep
+// code away from the process, so the worker serves a single run (single-use).
+
+const readline = require('readline');
+const util = require('util');
+const vm = require('vm');
+
+function capture(limit) {
+  let text = '';
+  let truncated = false;
+  return {
+    write(args) {
+      if (truncated) {
+        return;
+      }
+      text += util.format(...args) + '\n';
+      if (text.length > limit) {
+        text = text.slice(0, limit) + '\n[output truncated]';
+        truncated = true;
+      }
+    },
+    value: () => text
+  };
+}
+
+function run(request) {
+  const limit = request.maxOutput || 65536;
+  const stdout = capture(limit);
+  const stderr = capture(limit);
+  const console = {
+    log: (...args) => stdout.write(args),
+    info: (...args) => stdout.write(args),
+    warn: (...args) => stderr.write(args),
+    error: (...args) => stderr.write(args)
+  };
+  const response = { status: 'ok', exitCode: 0 };
+  try {
+    // The timeout is wall-clock on synchronous code, which is CPU bound
+    vm.runInNewContext(request.code, { console }, {
+      filename: 'sandbox.js',
+      timeout: Math.max(1, Math.round((request.cpuSeconds || 5) * 1000))
+    });
+  } catch (error) {
+    response.exitCode = 1;
+    if (error && error.code === 'ERR_SCRIPT_EXECUTION_TIMEOUT') {
+      response.status = 'cpu_limit';
+      response.error = 'CPU time limit exceeded';
+    } else {
+      response.status = 'error';
+      // Keep the frames of the code, not those of this worker
+      const text = String(error && error.stack ? error.stack : error);
+      response.error = text.split('\n')
+        .filter(line => !/^\s+at /.test(line) || line.includes('sandbox.js'))
+        .join('\n')
+        .slice(-limit);
+    }
+  }
+  response.stdout = stdout.value();
+  response.stderr = stderr.value();
+  return response;
+}
+
+const respond = message => process.stdout.write(JSON.stringify(message) + '\n');
+
+readline.createInterface({ input: process.stdin })
+  .on('line', line => respond(run(JSON.parse(line))))
+  .on('close', () => process.exit(0));
+
+respond({ ready: true });
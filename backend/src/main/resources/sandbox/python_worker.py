@@ -0,0 +1,142 @@
+"""Sandbox worker: runs the code of one JSON request line at a time and
+answers with one JSON line. The worker stays warm and forks a fresh child
+for every run, so nothing one run changes is seen by the next; the child
+applies the limits, runs the code and reports back over a pipe. The
+protocol uses private copies of stdin and stdout; the code itself sees
+/dev/null there and its output is captured."""
+import builtins
+import contextlib
+import io
+import json
+import math
+import os
+import resource
+import signal
+import sys
+import traceback
+
+
+class CpuLimitExceeded(BaseException):
+    pass
+
+
+def on_cpu_limit(signum, frame):
+    raise CpuLimitExceeded()
+
+
+def capped(buffer, limit):
+    text = buffer.getvalue()
+    return text if len(text) <= limit else text[:limit] + "\n[output truncated]"
+
+
+def die_with_parent(parent):
+    """Have the kernel kill the child when the worker is killed"""
+    try:
+        import ctypes
+        PR_SET_PDEATHSIG = 1
+        ctypes.CDLL(None).prctl(PR_SET_PDEATHSIG, signal.SIGKILL)
+    except (ImportError, OSError, AttributeError):
+        pass
+    if os.getppid() != parent:
+        os._exit(1)
+
+
+def limit(request):
+    memory = int(os.environ.get("SANDBOX_MEMORY_BYTES", "0"))
+    if memory > 0:
+        resource.setrlimit(resource.RLIMIT_AS, (memory, memory))
+    resource.setrlimit(resource.RLIMIT_CORE, (0, 0))
+    # The soft limit signals, the hard one kills; the code can raise neither
+    soft = max(1, math.ceil(float(request.get("cpuSeconds", 5))))
+    resource.setrlimit(resource.RLIMIT_CPU, (soft, soft + 1))
+    signal.signal(signal.SIGXCPU, on_cpu_limit)
+
+
+def run(request):
+    limit(request)
+    limit_chars = int(request.get("maxOutput", 65536))
+    stdout, stderr = io.StringIO(), io.StringIO()
+    status, exit_code, error = "ok", 0, None
+    saved_builtins = dict(builtins.__dict__)
+    try:
+        with contextlib.redirect_stdout(stdout), contextlib.redirect_stderr(stderr):
+            exec(compile(request["code"], "<sandbox>", "exec"), {"__name__": "__main__"})
+    except SystemExit as e:
+        exit_code = e.code if isinstance(e.code, int) else (0 if e.code is None else 1)
+        if exit_code != 0:
+            status = "error"
+    except CpuLimitExceeded:
+        status, exit_code, error = "cpu_limit", 1, "CPU time limit exceeded"
+    except MemoryError:
+        status, exit_code, error = "memory_limit", 1, "Memory limit exceeded"
+    except BaseException as e:
+        status, exit_code = "error", 1
+        error = "".join(traceback.format_exception(type(e), e, e.__traceback__.tb_next))
+    finally:
+        # The child reports with the builtins it started with
+        builtins.__dict__.clear()
+        builtins.__dict__.update(saved_builtins)
+    response = {"status": status, "exitCode": exit_code,
+                "stdout": capped(stdout, limit_chars), "stderr": capped(stderr, limit_chars)}
+    if error is not None:
+        response["error"] = error[-limit_chars:]
+    return response
+
+
+def run_in_child(request, protocol_fds):
+    """Fork a child for the run and collect its response"""
+    parent = os.getpid()
+    read_end, write_end = os.pipe()
+    pid = os.fork()
+    if pid == 0:
+        try:
+            os.close(read_end)
+            for fd in protocol_fds:
+                os.close(fd)
+            os.setpgid(0, 0)
+            die_with_parent(parent)
+            with os.fdopen(write_end, "w", encoding="utf-8") as out:
+                out.write(json.dumps(run(request)))
+        finally:
+            os._exit(0)
+
+    os.close(write_end)
+    with os.fdopen(read_end, "r", encoding="utf-8") as result:
+        data = result.read()
+    _, wait_status = os.waitpid(pid, 0)
+    # Take down anything the run left behind in its process group
+    try:
+        os.killpg(pid, signal.SIGKILL)
+    except OSError:
+        pass
+    try:
+        return json.loads(data)
+    except ValueError:
+        pass
+    if os.WIFSIGNALED(wait_status) and os.WTERMSIG(wait_status) in (signal.SIGKILL, signal.SIGXCPU):
+        return {"status": "cpu_limit", "exitCode": 1, "error": "CPU time limit exceeded"}
+    if os.WIFSIGNALED(wait_status):
+        return {"status": "crashed", "exitCode": -1,
+                "error": "Run was killed by signal %d" % os.WTERMSIG(wait_status)}
+    return {"status": "crashed", "exitCode": os.WEXITSTATUS(wait_status),
+            "error": "Run exited before reporting a result, possibly over its memory limit"}
+
+
+def main():
+    requests = os.fdopen(os.dup(0), "r", encoding="utf-8")
+    responses = os.fdopen(os.dup(1), "w", encoding="utf-8")
+    devnull = os.open(os.devnull, os.O_RDWR)
+    for fd in (0, 1, 2):
+        os.dup2(devnull, fd)
+
+    def respond(message):
+        responses.write(json.dumps(message) + "\n")
+        responses.flush()
+
+    respond({"ready": True})
+    for line in requests:
+        respond(run_in_child(json.loads(line), (requests.fileno(), responses.fileno())))
+
+
+if __name__ == "__main__":
+    sys.exit(main())
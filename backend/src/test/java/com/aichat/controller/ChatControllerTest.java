@@ -0,0 +1,86 @@
+package com.aichat.controller;
+
+import com.aichat.config.AdmissionProperties;
+import com.aichat.model.ChatRequest;
+import com.aichat.model.ChatResponse;
+import com.aichat.service.AdmissionControl;
+import com.aichat.service.ChatExporter;
+import com.aichat.service.ChatService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChatControllerTest {
+
+    private ChatController controller;
+
+    @BeforeEach
+    void setUp() {
+        AdmissionProperties.Limit oneRequest = new AdmissionProperties.Limit();
+        oneRequest.setRate(0.001);
+        oneRequest.setBurst(1);
+        AdmissionProperties.Endpoint chat = new AdmissionProperties.Endpoint();
+        chat.setPerUser(oneRequest);
+        chat.setPerSession(oneRequest);
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.getEndpoints().put(AdmissionControl.CHAT, chat);
+
+        ChatService chatService = mock(ChatService.class);
+        when(chatService.processMessage(any())).thenReturn(Mono.just(new ChatResponse()));
+        controller = new ChatController(chatService, new AdmissionControl(properties), mock(ChatExporter.class));
+    }
+
+    @Test
+    void limitsAnAnonymousRequestPerClientAddress() {
+        ResponseEntity<ChatResponse> first = controller.sendMessage(anonymous(), client("10.0.0.1")).block();
+        ResponseEntity<ChatResponse> second = controller.sendMessage(anonymous(), client("10.0.0.1")).block();
+        ResponseEntity<ChatResponse> otherClient = controller.sendMessage(anonymous(), client("10.0.0.2")).block();
+
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(second.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isNotNull();
+        assertThat(otherClient.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void limitsAnAnonymousStreamPerClientAddress() {
+        controller.sendMessage(anonymous(), client("10.0.0.1")).block();
+
+        assertThat(controller.streamMessage(anonymous(), client("10.0.0.1")).getStatusCode())
+            .isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @Test
+    void limitsASessionRatherThanItsAddress() {
+        ChatRequest request = anonymous();
+        request.setSessionId("session-1");
+        ChatRequest otherSession = anonymous();
+        otherSession.setSessionId("session-2");
+
+        assertThat(controller.sendMessage(request, client("10.0.0.1")).block().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(controller.sendMessage(request, client("10.0.0.1")).block().getStatusCode())
+            .isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(controller.sendMessage(otherSession, client("10.0.0.1")).block().getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    private static ChatRequest anonymous() {
+        ChatRequest request = new ChatRequest();
+        request.setMessage("hello");
+        return request;
+    }
+
+    private static MockHttpServletRequest client(String address) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(address);
+        return request;
+    }
+}
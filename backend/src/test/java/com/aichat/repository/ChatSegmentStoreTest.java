@@ -0,0 +1,124 @@
+package com.aichat.repository;
+
+import com.aichat.config.ChatProperties;
+import com.aichat.model.ChatMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatSegmentStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private ChatSegmentStore store;
+
+    @AfterEach
+    void closeStore() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    void truncatesATornTailAndKeepsTheBlocksBeforeIt() throws IOException {
+        store = open();
+        store.append("a", messages("a", 1, 3));
+        store.append("b", messages("b", 4, 5));
+        store.close();
+
+        Path segment = segmentFile();
+        long intact = Files.size(segment);
+        // A crash while appending: the next record's header made it to disk, half its payload did not
+        byte[] firstRecord = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(firstRecord, firstRecord.length / 2), StandardOpenOption.APPEND);
+
+        store = open();
+
+        assertThat(Files.size(segment)).isEqualTo(intact);
+        assertThat(ids(store.read("a"))).containsExactly(1L, 2L, 3L);
+        assertThat(ids(store.read("b"))).containsExactly(4L, 5L);
+        assertThat(store.maxMessageId()).isEqualTo(5);
+    }
+
+    @Test
+    void appendsAfterARecoveredTail() throws IOException {
+        store = open();
+        store.append("a", messages("a", 1, 2));
+        store.close();
+        Files.write(segmentFile(), new byte[]{0x43, 0x48, 0x53}, StandardOpenOption.APPEND);
+
+        store = open();
+        store.append("b", messages("b", 3, 4));
+        store.close();
+        store = open();
+
+        assertThat(ids(store.read("a"))).containsExactly(1L, 2L);
+        assertThat(ids(store.read("b"))).containsExactly(3L, 4L);
+    }
+
+    @Test
+    void recoversBlocksMissingFromTheIndex() throws IOException {
+        store = open();
+        store.append("a", messages("a", 1, 2));
+        store.append("b", messages("b", 3, 3));
+        store.close();
+
+        Path index = Path.of(segmentFile().toString().replace(".seg", ".idx"));
+        Files.write(index, new byte[0]);
+
+        store = open();
+
+        assertThat(ids(store.read("a"))).containsExactly(1L, 2L);
+        assertThat(ids(store.read("b"))).containsExactly(3L);
+        assertThat(Files.size(index)).isPositive();
+    }
+
+    private ChatSegmentStore open() throws IOException {
+        ChatProperties properties = new ChatProperties();
+        properties.getArchive().setEnabled(true);
+        properties.getArchive().setDirectory(directory.toString());
+        ChatSegmentStore opened = new ChatSegmentStore(properties, new ObjectMapper().findAndRegisterModules());
+        opened.open();
+        return opened;
+    }
+
+    private Path segmentFile() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = files.filter(path -> path.toString().endsWith(".seg")).toList();
+            assertThat(segments).hasSize(1);
+            return segments.get(0);
+        }
+    }
+
+    private static List<ChatMessage> messages(String sessionId, long firstId, long lastId) {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (long id = firstId; id <= lastId; id++) {
+            ChatMessage message = new ChatMessage();
+            message.setId(id);
+            message.setSessionId(sessionId);
+            message.setType(ChatMessage.MessageType.USER);
+            message.setContent("message " + id);
+            message.setTimestamp(LocalDateTime.of(2024, 1, 1, 12, 0).plusMinutes(id));
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private static List<Long> ids(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::getId).toList();
+    }
+}
@@ -0,0 +1,96 @@
+package com.aichat.service;
+
+import com.aichat.config.ChatProperties;
+import com.aichat.model.ChatMessage;
+import com.aichat.repository.ChatMessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ChatSearchIndexTest {
+
+    private ChatSearchIndex index;
+    private long nextId;
+
+    @BeforeEach
+    void setUp() {
+        ChatProperties properties = new ChatProperties();
+        properties.getSearch().setPurgeThreshold(0);
+        index = new ChatSearchIndex(mock(ChatMessageRepository.class), properties);
+    }
+
+    @Test
+    void forgetsClearedSessionsOnPurge() {
+        for (int session = 0; session < 50; session++) {
+            add("session-" + session, "user-" + session, "short lived chat");
+        }
+        add("kept", "user-kept", "long lived chat");
+        for (int message = 0; message < 60; message++) {
+            add("bulk", "user-bulk", "bulk chat");
+        }
+
+        for (int session = 0; session < 50; session++) {
+            index.removeSession("session-" + session);
+        }
+        // Outnumbers the live messages, so the tombstones are purged
+        index.removeSession("bulk");
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.sessionCount()).isEqualTo(1);
+        assertThat(ids(index.search("chat", null, null, 0, 10))).containsExactly(51L);
+        assertThat(index.search("chat", "session-3", null, 0, 10).total()).isZero();
+        assertThat(index.search("chat", null, "user-3", 0, 10).total()).isZero();
+    }
+
+    @Test
+    void keepsFiltersWorkingAfterRenumbering() {
+        add("a", "alice", "deploy the service");
+        add("a", "alice", "restart the service");
+        add("b", "bob", "deploy the database");
+        add("b", "bob", "restart the database");
+        add("c", "alice", "deploy the cache");
+        add("c", "carol", "review the cache");
+        index.removeSession("a");
+        // Four deleted messages outnumber the two live ones, so this purges
+        index.removeSession("b");
+
+        assertThat(index.sessionCount()).isEqualTo(1);
+        assertThat(ids(index.search("deploy", null, null, 0, 10))).containsExactly(5L);
+        assertThat(ids(index.search("cache", "c", null, 0, 10))).containsExactlyInAnyOrder(5L, 6L);
+        assertThat(ids(index.search("cache", null, "carol", 0, 10))).containsExactly(6L);
+        assertThat(ids(index.search("deploy", null, "alice", 0, 10))).containsExactly(5L);
+        assertThat(index.search("database", null, "bob", 0, 10).total()).isZero();
+
+        add("a", "bob", "deploy again");
+        assertThat(ids(index.search("deploy", "a", "bob", 0, 10))).containsExactly(7L);
+        assertThat(index.sessionCount()).isEqualTo(2);
+    }
+
+    @Test
+    void ordersEqualScoresByNewestMessage() {
+        add("a", "alice", "same words");
+        add("a", "alice", "same words");
+        add("a", "alice", "same words");
+
+        assertThat(ids(index.search("same", null, null, 0, 10))).containsExactly(3L, 2L, 1L);
+        assertThat(ids(index.search("same", null, null, 1, 1))).containsExactly(2L);
+    }
+
+    private void add(String sessionId, String userId, String content) {
+        ChatMessage message = new ChatMessage();
+        message.setId(++nextId);
+        message.setSessionId(sessionId);
+        message.setUserId(userId);
+        message.setType(ChatMessage.MessageType.USER);
+        message.setContent(content);
+        index.add(message);
+    }
+
+    private static List<Long> ids(ChatSearchIndex.Result result) {
+        return result.hits().stream().map(ChatSearchIndex.Hit::messageId).toList();
+    }
+}
@@ -0,0 +1,69 @@
+package com.aichat.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DatabaseQueryExecutorTest {
+
+    @Test
+    void acceptsOneReadOnlyStatementAndDropsTheTrailingSemicolon() {
+        DatabaseQueryExecutor.ParsedQuery query = DatabaseQueryExecutor.parse("  select * from users where id = ?;  ");
+
+        assertThat(query.sql()).isEqualTo("select * from users where id = ?");
+        assertThat(query.parameterCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsASecondStatement() {
+        assertThatThrownBy(() -> DatabaseQueryExecutor.parse("SELECT 1; DROP TABLE users"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("single statement");
+    }
+
+    @Test
+    void allowsCommentsAndSemicolonsAfterTheStatement() {
+        DatabaseQueryExecutor.ParsedQuery query = DatabaseQueryExecutor.parse("SELECT 1; -- done\n; /* DELETE */ ;");
+
+        assertThat(query.sql()).isEqualTo("SELECT 1");
+    }
+
+    @Test
+    void ignoresSemicolonsAndMarkersInsideQuotes() {
+        DatabaseQueryExecutor.ParsedQuery query = DatabaseQueryExecutor.parse(
+            "SELECT 'a;b?', \"c;?\", `d;?`, 'it''s; ?' FROM t WHERE x = ?");
+
+        assertThat(query.parameterCount()).isEqualTo(1);
+        assertThat(query.sql()).endsWith("WHERE x = ?");
+    }
+
+    @Test
+    void ignoresStatementsAndMarkersInsideComments() {
+        DatabaseQueryExecutor.ParsedQuery query = DatabaseQueryExecutor.parse(
+            "-- DELETE FROM t; ?\n/* UPDATE t SET x = ?; */ SELECT ? /* ; */ FROM t");
+
+        assertThat(query.parameterCount()).isEqualTo(1);
+    }
+
+    @Test
+    void takesTheKeywordAfterLeadingComments() {
+        assertThatThrownBy(() -> DatabaseQueryExecutor.parse("/* SELECT */ -- SELECT\n DELETE FROM t"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("not DELETE");
+    }
+
+    @Test
+    void rejectsUnterminatedQuotesAndComments() {
+        assertThatThrownBy(() -> DatabaseQueryExecutor.parse("SELECT 'open"))
+            .hasMessageContaining("Unterminated quote");
+        assertThatThrownBy(() -> DatabaseQueryExecutor.parse("SELECT 1 /* open"))
+            .hasMessageContaining("Unterminated comment");
+    }
+
+    @Test
+    void rejectsAQueryWithOnlyComments() {
+        assertThatThrownBy(() -> DatabaseQueryExecutor.parse("-- nothing\n/* here */ ;"))
+            .hasMessageContaining("empty");
+    }
+}
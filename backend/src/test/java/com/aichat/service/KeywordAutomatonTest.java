@@ -0,0 +1,53 @@
+package com.aichat.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeywordAutomatonTest {
+
+    @Test
+    void reportsTheHighestPriorityRuleAmongOverlappingKeywords() {
+        KeywordAutomaton automaton = new KeywordAutomaton(List.of(List.of("he"), List.of("she"), List.of("hers")));
+
+        assertThat(automaton.match("ushers")).isZero();
+        assertThat(automaton.match("shes")).isZero();
+        assertThat(automaton.match("hers")).isZero();
+    }
+
+    @Test
+    void findsAKeywordThatEndsInsideALongerOne() {
+        // "ush" leads into "ushe"; "he" is only reached through the failure links
+        KeywordAutomaton automaton = new KeywordAutomaton(List.of(List.of("usher"), List.of("he")));
+
+        assertThat(automaton.match("ushe")).isEqualTo(1);
+        assertThat(automaton.match("an usher")).isZero();
+    }
+
+    @Test
+    void findsKeywordsThatShareAPrefix() {
+        KeywordAutomaton automaton = new KeywordAutomaton(List.of(List.of("code"), List.of("co", "cod")));
+
+        assertThat(automaton.match("cod")).isEqualTo(1);
+        assertThat(automaton.match("coding")).isEqualTo(1);
+        assertThat(automaton.match("decode")).isZero();
+    }
+
+    @Test
+    void matchesCaseInsensitively() {
+        KeywordAutomaton automaton = new KeywordAutomaton(List.of(List.of("Hello"), List.of("über")));
+
+        assertThat(automaton.match("HELLO there")).isZero();
+        assertThat(automaton.match("ÜBER")).isEqualTo(1);
+    }
+
+    @Test
+    void reportsNoMatch() {
+        KeywordAutomaton automaton = new KeywordAutomaton(List.of(List.of("file"), List.of("search")));
+
+        assertThat(automaton.match("fil searc")).isEqualTo(-1);
+        assertThat(automaton.match("")).isEqualTo(-1);
+    }
+}
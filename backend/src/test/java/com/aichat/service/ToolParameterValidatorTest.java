@@ -0,0 +1,98 @@
+package com.aichat.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ToolParameterValidatorTest {
+
+    private static final Map<String, Object> FILESYSTEM_SCHEMA = Map.of(
+        "type", "object",
+        "properties", Map.of(
+            "operation", Map.of("type", "string", "enum", List.of("read", "write")),
+            "path", Map.of("type", "string", "minLength", 1),
+            "content", Map.of("type", "string")),
+        "required", List.of("operation", "path"),
+        "if", Map.of("properties", Map.of("operation", Map.of("const", "write"))),
+        "then", Map.of("required", List.of("content")));
+
+    private final ToolParameterValidator validator = ToolParameterValidator.compile(FILESYSTEM_SCHEMA);
+
+    @Test
+    void acceptsValidParameters() {
+        assertThat(validator.validate(Map.of("operation", "read", "path", "/tmp/a"))).isNull();
+    }
+
+    @Test
+    void reportsTheFirstMissingRequiredParameter() {
+        assertThat(validator.validate(Map.of())).isEqualTo("Parameter 'operation' is required");
+        assertThat(validator.validate(Map.of("operation", "read"))).isEqualTo("Parameter 'path' is required");
+    }
+
+    @Test
+    void treatsANullValueAsMissing() {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("operation", "read");
+        parameters.put("path", null);
+
+        assertThat(validator.validate(parameters)).isEqualTo("Parameter 'path' is required");
+    }
+
+    @Test
+    void rejectsAValueOutsideTheEnum() {
+        assertThat(validator.validate(Map.of("operation", "delete", "path", "/tmp/a")))
+            .isEqualTo("Parameter 'operation' must be one of [read, write]");
+    }
+
+    @Test
+    void comparesNumbersInAnEnumByValue() {
+        ToolParameterValidator sizes = ToolParameterValidator.compile(Map.of(
+            "properties", Map.of("size", Map.of("enum", List.of(1, 2.5)))));
+
+        assertThat(sizes.validate(Map.of("size", 1.0))).isNull();
+        assertThat(sizes.validate(Map.of("size", 2.5f))).isNull();
+        assertThat(sizes.validate(Map.of("size", 3))).isEqualTo("Parameter 'size' must be one of [1, 2.5]");
+    }
+
+    @Test
+    void requiresContentOnlyForWrites() {
+        assertThat(validator.validate(Map.of("operation", "write", "path", "/tmp/a")))
+            .isEqualTo("Parameter 'content' is required");
+        assertThat(validator.validate(Map.of("operation", "write", "path", "/tmp/a", "content", "")))
+            .isNull();
+    }
+
+    @Test
+    void allowsUndeclaredPropertiesUnlessAdditionalPropertiesSaysOtherwise() {
+        Map<String, Object> parameters = Map.of("operation", "read", "path", "/tmp/a", "mode", "fast");
+        assertThat(validator.validate(parameters)).isNull();
+
+        ToolParameterValidator closed = ToolParameterValidator.compile(Map.of(
+            "properties", Map.of("path", Map.of("type", "string")),
+            "additionalProperties", false));
+        assertThat(closed.validate(Map.of("path", "/tmp/a"))).isNull();
+        assertThat(closed.validate(Map.of("path", "/tmp/a", "mode", "fast")))
+            .isEqualTo("Parameter 'mode' is not allowed");
+    }
+
+    @Test
+    void checksAdditionalPropertiesAgainstTheirSchema() {
+        ToolParameterValidator labels = ToolParameterValidator.compile(Map.of(
+            "properties", Map.of("name", Map.of("type", "string")),
+            "additionalProperties", Map.of("type", "integer")));
+
+        assertThat(labels.validate(Map.of("name", "x", "count", 3))).isNull();
+        assertThat(labels.validate(Map.of("name", "x", "count", "three")))
+            .isEqualTo("Parameter 'count' must be integer");
+    }
+
+    @Test
+    void acceptsAnythingWithoutASchema() {
+        assertThat(ToolParameterValidator.compile(null)).isSameAs(ToolParameterValidator.ACCEPT_ALL);
+        assertThat(ToolParameterValidator.ACCEPT_ALL.validate(Map.of("anything", 1))).isNull();
+    }
+}
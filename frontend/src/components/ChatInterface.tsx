@@ -2,12 +2,11 @@ import React, { useState, useRef, useEffect } from 'react';
 import { PaperAirplaneIcon } from '@heroicons/react/24/solid';
 import { useChat } from '../context/ChatContext';
 import { useMcp } from '../context/McpContext';
-import { chatApi } from '../services/api';
 import ChatMessage from './ChatMessage';
 import ChatInput from './ChatInput';
 
 const ChatInterface: React.FC = () => {
-  const { state: chatState, addMessage, setLoading, setError } = useChat();
+  const { state: chatState, addMessage, sendMessage, setLoading, setError } = useChat();
   const { state: mcpState } = useMcp();
   const messagesEndRef = useRef<HTMLDivElement>(null);
   const [inputValue, setInputValue] = useState('');
@@ -24,8 +23,8 @@ const ChatInterface: React.FC = () => {
       setLoading(true);
       setError(null);
 
-      // Add user message to UI immediately
-      addMessage(message, 'user');
+      // Add user message to UI immediately; the saved copy replaces it
+      addMessage(message.trim(), 'user', true);
 
       // Prepare request with MCP tools if selected
       const request = {
@@ -35,13 +34,10 @@ const ChatInterface: React.FC = () => {
         mcpTools: mcpState.selectedTools,
       };
 
-      // Send to backend
-      const response = await chatApi.sendMessage(request);
+      // Send to backend; the AI response is added once it is saved
+      const response = await sendMessage(request);
 
-      if (response.success) {
-        // Add AI response to UI
-        addMessage(response.aiResponse, 'ai');
-      } else {
+      if (!response.success) {
         throw new Error(response.error || 'Failed to get response');
       }
     } catch (error) {
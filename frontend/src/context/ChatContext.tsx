@@ -1,4 +1,6 @@
-import React, { createContext, useContext, useReducer, ReactNode } from 'react';
+import React, { createContext, useContext, useEffect, useReducer, ReactNode } from 'react';
+import { chatApi, ChatRequest, ChatResponse } from '../services/api';
+import { chatSocket, StoredMessage } from '../services/chatSocket';
 
 export interface ChatMessage {
   id: string;
@@ -8,6 +10,8 @@ export interface ChatMessage {
   sessionId: string;
   aiResponse?: string;
   mcpToolsUsed?: string[];
+  // Shown before the server has confirmed it; replaced by the saved message
+  pending?: boolean;
 }
 
 interface ChatState {
@@ -22,7 +26,9 @@ type ChatAction =
   | { type: 'SET_LOADING'; payload: boolean }
   | { type: 'SET_ERROR'; payload: string | null }
   | { type: 'CLEAR_MESSAGES' }
-  | { type: 'LOAD_MESSAGES'; payload: ChatMessage[] };
+  | { type: 'LOAD_MESSAGES'; payload: ChatMessage[] }
+  | { type: 'SAVED_MESSAGE'; payload: ChatMessage }
+  | { type: 'SYNC_HISTORY'; payload: ChatMessage[] };
 
 const initialState: ChatState = {
   messages: [],
@@ -62,15 +68,68 @@ function chatReducer(state: ChatState, action: ChatAction): ChatState {
         messages: action.payload,
         error: null,
       };
+    case 'SAVED_MESSAGE':
+      return {
+        ...state,
+        messages: withSavedMessage(state.messages, action.payload),
+      };
+    case 'SYNC_HISTORY': {
+      // Keep messages sent but not yet confirmed by the server
+      let messages = action.payload;
+      state.messages.filter((message) => message.pending).forEach((message) => {
+        if (!messages.some((saved) => saved.type === message.type && saved.content === message.content)) {
+          messages = [...messages, message];
+        }
+      });
+      return {
+        ...state,
+        messages,
+      };
+    }
     default:
       return state;
   }
 }
 
+// A saved message arrives both in the chat response and pushed over the socket;
+// it replaces the pending copy of itself and is added only once
+function withSavedMessage(messages: ChatMessage[], saved: ChatMessage): ChatMessage[] {
+  if (messages.some((message) => message.id === saved.id)) {
+    return messages;
+  }
+  if (saved.pending) {
+    // The confirmed copy may already have arrived
+    const confirmed = messages.some(
+      (message) => !message.pending && message.type === saved.type && message.content === saved.content
+    );
+    return confirmed ? messages : [...messages, saved];
+  }
+  const pending = messages.findIndex(
+    (message) => message.pending && message.type === saved.type && message.content === saved.content
+  );
+  if (pending >= 0) {
+    return messages.map((message, index) => (index === pending ? saved : message));
+  }
+  return [...messages, saved];
+}
+
+function fromStored(message: StoredMessage): ChatMessage {
+  return {
+    id: String(message.id),
+    content: message.content,
+    type: message.type.toLowerCase() as ChatMessage['type'],
+    timestamp: new Date(message.timestamp),
+    sessionId: message.sessionId,
+    aiResponse: message.aiResponse,
+    mcpToolsUsed: message.mcpToolsUsed ? message.mcpToolsUsed.split(',') : undefined,
+  };
+}
+
 interface ChatContextType {
   state: ChatState;
   dispatch: React.Dispatch<ChatAction>;
-  addMessage: (content: string, type: 'user' | 'ai' | 'system') => void;
+  addMessage: (content: string, type: 'user' | 'ai' | 'system', pending?: boolean) => void;
+  sendMessage: (request: ChatRequest) => Promise<ChatResponse>;
   clearMessages: () => void;
   setLoading: (loading: boolean) => void;
   setError: (error: string | null) => void;
@@ -89,17 +148,52 @@ export function ChatProvider({ children, sessionId }: ChatProviderProps) {
     sessionId,
   });
 
-  const addMessage = (content: string, type: 'user' | 'ai' | 'system') => {
+  // Follow the session over the shared socket: its history, then every message saved to it
+  useEffect(() => {
+    chatSocket.connect();
+    chatSocket.subscribe(sessionId, {
+      onHistory: (messages) => dispatch({ type: 'SYNC_HISTORY', payload: messages.map(fromStored) }),
+      onMessage: (message) => dispatch({ type: 'SAVED_MESSAGE', payload: fromStored(message) }),
+      onError: (error) => dispatch({ type: 'SET_ERROR', payload: error }),
+    });
+    return () => chatSocket.unsubscribe(sessionId);
+  }, [sessionId]);
+
+  const addMessage = (content: string, type: 'user' | 'ai' | 'system', pending = false) => {
     const message: ChatMessage = {
       id: `msg_${Date.now()}_${Math.random().toString(36).substr(2, 9)}`,
       content,
       type,
       timestamp: new Date(),
       sessionId,
+      pending,
     };
     dispatch({ type: 'ADD_MESSAGE', payload: message });
   };
 
+  // Chat turns go over the socket when it is open, otherwise over HTTP
+  const sendMessage = async (request: ChatRequest): Promise<ChatResponse> => {
+    const response = chatSocket.isOpen()
+      ? await chatSocket.sendMessage(request)
+      : await chatApi.sendMessage(request);
+    if (response.success) {
+      // Without an ID yet (write-behind), the pushed copy replaces this one
+      dispatch({
+        type: 'SAVED_MESSAGE',
+        payload: {
+          id: response.id || `msg_${Date.now()}_${Math.random().toString(36).substr(2, 9)}`,
+          content: response.aiResponse,
+          type: 'ai',
+          timestamp: new Date(response.timestamp),
+          sessionId: response.sessionId,
+          mcpToolsUsed: response.mcpToolsUsed,
+          pending: !response.id,
+        },
+      });
+    }
+    return response;
+  };
+
   const clearMessages = () => {
     dispatch({ type: 'CLEAR_MESSAGES' });
   };
@@ -116,6 +210,7 @@ export function ChatProvider({ children, sessionId }: ChatProviderProps) {
     state,
     dispatch,
     addMessage,
+    sendMessage,
     clearMessages,
     setLoading,
     setError,
@@ -0,0 +1,214 @@
+import { ChatRequest, ChatResponse } from './api';
+
+const API_BASE_URL = process.env.REACT_APP_API_URL || 'http://localhost:8888';
+const SOCKET_URL = API_BASE_URL.replace(/^http/, 'ws') + '/ws/chat';
+
+// Frames each session may receive before more credits are granted
+const CREDIT_WINDOW = 64;
+
+export interface ChatStreamEvent {
+  type: 'CHUNK' | 'TOOL' | 'DONE' | 'ERROR';
+  sessionId: string;
+  content?: string;
+  tool?: string;
+  status?: string;
+  response?: ChatResponse;
+  error?: string;
+}
+
+// Messages as the backend stores them
+export interface StoredMessage {
+  id: number;
+  content: string;
+  type: 'USER' | 'AI' | 'SYSTEM';
+  timestamp: string;
+  sessionId: string;
+  userId?: string;
+  aiResponse?: string;
+  mcpToolsUsed?: string;
+}
+
+interface SocketFrame {
+  type: 'SUBSCRIBE' | 'UNSUBSCRIBE' | 'CREDIT' | 'CHAT' | 'HISTORY'
+    | 'EVENT' | 'MESSAGE' | 'OVERFLOW' | 'ERROR';
+  sessionId?: string;
+  requestId?: string;
+  credits?: number;
+  limit?: number;
+  request?: ChatRequest;
+  event?: ChatStreamEvent;
+  message?: StoredMessage;
+  messages?: StoredMessage[];
+  error?: string;
+}
+
+export interface SessionHandlers {
+  onHistory?: (messages: StoredMessage[]) => void;
+  onMessage?: (message: StoredMessage) => void;
+  onError?: (error: string) => void;
+}
+
+interface SessionState {
+  handlers: SessionHandlers;
+  received: number;
+}
+
+interface PendingReply {
+  onEvent?: (event: ChatStreamEvent) => void;
+  resolve: (response: ChatResponse) => void;
+  reject: (error: Error) => void;
+}
+
+/**
+ * One WebSocket connection carrying any number of chat sessions. Credits are
+ * granted per session as frames are consumed, and subscriptions are restored
+ * after a reconnect.
+ */
+export class ChatSocket {
+  private socket: WebSocket | null = null;
+  private sessions = new Map<string, SessionState>();
+  private replies = new Map<string, PendingReply>();
+  private queue: SocketFrame[] = [];
+  private reconnectDelay = 500;
+  private closed = false;
+  private nextRequestId = 0;
+
+  constructor(private url: string = SOCKET_URL) {}
+
+  connect(): void {
+    this.closed = false;
+    if (this.socket && this.socket.readyState !== WebSocket.CLOSED) {
+      return;
+    }
+    const socket = new WebSocket(this.url);
+    this.socket = socket;
+
+    socket.onopen = () => {
+      this.reconnectDelay = 500;
+      this.sessions.forEach((state, sessionId) => {
+        state.received = 0;
+        this.send({ type: 'SUBSCRIBE', sessionId, credits: CREDIT_WINDOW }, true);
+      });
+      this.queue.splice(0).forEach((frame) => this.send(frame));
+    };
+    socket.onmessage = (message) => this.handle(JSON.parse(message.data));
+    socket.onclose = () => {
+      this.replies.forEach((reply) => reply.reject(new Error('Connection closed')));
+      this.replies.clear();
+      if (!this.closed) {
+        setTimeout(() => this.connect(), this.reconnectDelay);
+        this.reconnectDelay = Math.min(this.reconnectDelay * 2, 10000);
+      }
+    };
+  }
+
+  isOpen(): boolean {
+    return this.socket !== null && this.socket.readyState === WebSocket.OPEN;
+  }
+
+  close(): void {
+    this.closed = true;
+    this.socket?.close();
+  }
+
+  subscribe(sessionId: string, handlers: SessionHandlers): void {
+    this.sessions.set(sessionId, { handlers, received: 0 });
+    // Sessions are subscribed on (re)connect when the socket is not open yet
+    this.send({ type: 'SUBSCRIBE', sessionId, credits: CREDIT_WINDOW }, true);
+  }
+
+  unsubscribe(sessionId: string): void {
+    this.sessions.delete(sessionId);
+    // A closed socket holds no subscriptions, and only those still wanted are restored
+    this.send({ type: 'UNSUBSCRIBE', sessionId }, true);
+  }
+
+  refreshHistory(sessionId: string, limit?: number): void {
+    this.send({ type: 'HISTORY', sessionId, limit });
+  }
+
+  /**
+   * Run a chat turn, reporting stream events as they arrive
+   */
+  sendMessage(request: ChatRequest, onEvent?: (event: ChatStreamEvent) => void): Promise<ChatResponse> {
+    const requestId = `req_${++this.nextRequestId}`;
+    if (!this.sessions.has(request.sessionId)) {
+      this.sessions.set(request.sessionId, { handlers: {}, received: 0 });
+    }
+    return new Promise((resolve, reject) => {
+      this.replies.set(requestId, { onEvent, resolve, reject });
+      this.send({ type: 'CHAT', sessionId: request.sessionId, requestId, request });
+    });
+  }
+
+  private handle(frame: SocketFrame): void {
+    const session = frame.sessionId ? this.sessions.get(frame.sessionId) : undefined;
+
+    switch (frame.type) {
+      case 'HISTORY':
+        session?.handlers.onHistory?.(frame.messages || []);
+        break;
+      case 'MESSAGE':
+        if (frame.message) {
+          session?.handlers.onMessage?.(frame.message);
+        }
+        break;
+      case 'OVERFLOW':
+        // Pushed messages were dropped; reload the session instead
+        this.refreshHistory(frame.sessionId!);
+        return;
+      case 'EVENT':
+        this.handleEvent(frame);
+        break;
+      case 'ERROR': {
+        const reply = frame.requestId ? this.replies.get(frame.requestId) : undefined;
+        if (reply) {
+          this.replies.delete(frame.requestId!);
+          reply.reject(new Error(frame.error));
+        } else {
+          session?.handlers.onError?.(frame.error || 'An error occurred');
+        }
+        return;
+      }
+    }
+
+    if (session && frame.sessionId) {
+      this.consumeCredit(frame.sessionId, session);
+    }
+  }
+
+  private handleEvent(frame: SocketFrame): void {
+    const reply = frame.requestId ? this.replies.get(frame.requestId) : undefined;
+    const event = frame.event;
+    if (!reply || !event) {
+      return;
+    }
+    reply.onEvent?.(event);
+    if (event.type === 'DONE' && event.response) {
+      this.replies.delete(frame.requestId!);
+      reply.resolve(event.response);
+    } else if (event.type === 'ERROR') {
+      this.replies.delete(frame.requestId!);
+      reply.reject(new Error(event.error));
+    }
+  }
+
+  // Grant the next window once half of the current one is used
+  private consumeCredit(sessionId: string, session: SessionState): void {
+    session.received++;
+    if (session.received >= CREDIT_WINDOW / 2) {
+      this.send({ type: 'CREDIT', sessionId, credits: session.received });
+      session.received = 0;
+    }
+  }
+
+  private send(frame: SocketFrame, immediate = false): void {
+    if (this.socket && this.socket.readyState === WebSocket.OPEN) {
+      this.socket.send(JSON.stringify(frame));
+    } else if (!immediate) {
+      this.queue.push(frame);
+    }
+  }
+}
+
+export const chatSocket = new ChatSocket();